@@ -1,8 +1,11 @@
 package rmit.saintgiong.paymentapi.external.services;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface ExternalCompanyPaymentRequestInterface {
 
     void sendSubscriptionPaidRequest(UUID companyId, UUID transactionId, String status);
+
+    CompletableFuture<Void> sendSubscriptionPaidRequestAsync(UUID companyId, UUID transactionId, String status);
 }
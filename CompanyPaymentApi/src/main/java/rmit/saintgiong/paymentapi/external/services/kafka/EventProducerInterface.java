@@ -1,15 +1,39 @@
 package rmit.saintgiong.paymentapi.external.services.kafka;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 public interface EventProducerInterface {
 
+    /**
+     * Best-effort, unkeyed send with no delivery guarantee: a failure is only logged. Records that
+     * must arrive, or arrive in order, go through the outbox, which relays them with
+     * {@link #sendAsync} and retries from the database until the broker acknowledges.
+     */
     void send(String requestTopic, Object requestData);
 
+    CompletableFuture<Void> sendAsync(String requestTopic, String key, Object requestData);
+
+    /**
+     * Blocking request-reply. Replies are always read from this instance's reply topic,
+     * so {@code responseTopic} is only kept for source compatibility.
+     */
     <T> T sendAndReceive(
             String requestTopic,
             String responseTopic,
             Object requestData,
             Class<T> responseType
     ) throws ExecutionException, InterruptedException;
+
+    /**
+     * Non-blocking request-reply. The reply is matched by correlation id on this instance's
+     * reply topic; the future completes exceptionally if no reply arrives within {@code timeout}.
+     */
+    <T> CompletableFuture<T> sendAndReceiveAsync(
+            String requestTopic,
+            Object requestData,
+            Class<T> responseType,
+            Duration timeout
+    );
 }
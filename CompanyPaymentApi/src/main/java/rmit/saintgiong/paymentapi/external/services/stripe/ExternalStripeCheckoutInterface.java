@@ -13,7 +13,7 @@ public interface ExternalStripeCheckoutInterface {
 
     void handleCheckoutSessionAsyncFailed(Event event, String payload);
 
-    void handlePaymentIntentSucceeded(Event event);
+    void handlePaymentIntentSucceeded(Event event, String payload);
 
-    void handlePaymentIntentFailed(Event event);
+    void handlePaymentIntentFailed(Event event, String payload);
 }
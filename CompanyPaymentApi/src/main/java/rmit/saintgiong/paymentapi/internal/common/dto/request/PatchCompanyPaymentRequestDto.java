@@ -0,0 +1,26 @@
+package rmit.saintgiong.paymentapi.internal.common.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import rmit.saintgiong.paymentapi.internal.common.type.PaymentMethod;
+
+/**
+ * One entry of a bulk patch. Null fields are left unchanged.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatchCompanyPaymentRequestDto {
+    @NotNull
+    private String id;
+
+    private Double amount;
+
+    private String currency;
+
+    private PaymentMethod method;
+}
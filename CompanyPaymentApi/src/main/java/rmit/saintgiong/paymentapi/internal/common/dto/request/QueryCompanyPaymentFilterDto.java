@@ -0,0 +1,25 @@
+package rmit.saintgiong.paymentapi.internal.common.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueryCompanyPaymentFilterDto {
+    private String companyId;
+    private TransactionStatus status;
+    private String currency;
+
+    /** Inclusive lower bound on the purchase time. */
+    private Instant from;
+
+    /** Exclusive upper bound on the purchase time. */
+    private Instant to;
+}
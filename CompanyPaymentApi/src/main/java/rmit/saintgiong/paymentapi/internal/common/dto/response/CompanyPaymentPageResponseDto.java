@@ -0,0 +1,19 @@
+package rmit.saintgiong.paymentapi.internal.common.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompanyPaymentPageResponseDto {
+    private List<QueryCompanyPaymentResponseDto> items;
+
+    /** Opaque cursor for the next page; null when this is the last page. */
+    private String nextCursor;
+}
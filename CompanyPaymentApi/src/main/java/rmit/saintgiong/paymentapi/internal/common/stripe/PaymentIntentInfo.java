@@ -0,0 +1,7 @@
+package rmit.saintgiong.paymentapi.internal.common.stripe;
+
+
+public record PaymentIntentInfo(
+        String paymentIntentId,
+        String latestChargeId) {
+}
@@ -0,0 +1,6 @@
+package rmit.saintgiong.paymentapi.internal.common.type;
+
+public enum ExportFormat {
+    NDJSON,
+    CSV
+}
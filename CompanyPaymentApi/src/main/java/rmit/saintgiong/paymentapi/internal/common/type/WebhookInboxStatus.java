@@ -0,0 +1,8 @@
+package rmit.saintgiong.paymentapi.internal.common.type;
+
+public enum WebhookInboxStatus {
+    PENDING,
+    PROCESSING,
+    PROCESSED,
+    FAILED
+}
@@ -5,4 +5,10 @@ import rmit.saintgiong.paymentapi.internal.common.dto.response.CreateCompanyPaym
 
 public interface CreateCompanyPaymentInterface {
     CreateCompanyPaymentResponseDto createCompanyPayment(CreateCompanyPaymentRequestDto req);
+
+    /**
+     * Creates a payment, or returns the one already created for the same company and
+     * {@code idempotencyKey}. A null key falls back to reusing an open checkout session.
+     */
+    CreateCompanyPaymentResponseDto createCompanyPayment(CreateCompanyPaymentRequestDto req, String idempotencyKey);
 }
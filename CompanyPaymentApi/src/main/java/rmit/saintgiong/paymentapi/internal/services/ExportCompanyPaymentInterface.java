@@ -0,0 +1,15 @@
+package rmit.saintgiong.paymentapi.internal.services;
+
+import rmit.saintgiong.paymentapi.internal.common.dto.request.QueryCompanyPaymentFilterDto;
+import rmit.saintgiong.paymentapi.internal.common.type.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportCompanyPaymentInterface {
+
+    /**
+     * Writes every matching payment to {@code out} incrementally and returns the row count.
+     */
+    long exportCompanyPayments(QueryCompanyPaymentFilterDto filter, ExportFormat format, OutputStream out) throws IOException;
+}
@@ -1,12 +1,15 @@
 package rmit.saintgiong.paymentapi.internal.services;
 
+import rmit.saintgiong.paymentapi.internal.common.dto.request.QueryCompanyPaymentFilterDto;
+import rmit.saintgiong.paymentapi.internal.common.dto.response.CompanyPaymentPageResponseDto;
 import rmit.saintgiong.paymentapi.internal.common.dto.response.QueryCompanyPaymentResponseDto;
 
-import java.util.List;
-import java.util.UUID;
-
 public interface QueryCompanyPaymentInterface {
     QueryCompanyPaymentResponseDto getCompanyPayment(String id);
-    List<QueryCompanyPaymentResponseDto> listCompanyPayments();
-}
 
+    /**
+     * Lists payments newest first, one page at a time. Pass the previous page's
+     * {@code nextCursor} to continue; {@code limit} is capped server-side.
+     */
+    CompanyPaymentPageResponseDto listCompanyPayments(QueryCompanyPaymentFilterDto filter, String cursor, Integer limit);
+}
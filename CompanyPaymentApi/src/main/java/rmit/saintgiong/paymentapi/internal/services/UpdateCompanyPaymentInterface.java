@@ -1,8 +1,16 @@
 package rmit.saintgiong.paymentapi.internal.services;
 
 import rmit.saintgiong.paymentapi.internal.common.dto.request.CreateCompanyPaymentRequestDto;
+import rmit.saintgiong.paymentapi.internal.common.dto.request.PatchCompanyPaymentRequestDto;
 import rmit.saintgiong.paymentapi.internal.common.dto.response.QueryCompanyPaymentResponseDto;
 
+import java.util.List;
+
 public interface UpdateCompanyPaymentInterface {
     QueryCompanyPaymentResponseDto updateCompanyPayment(String id, CreateCompanyPaymentRequestDto req);
+
+    /**
+     * Applies all changes atomically; if any id does not exist nothing is written.
+     */
+    List<QueryCompanyPaymentResponseDto> updateCompanyPayments(List<PatchCompanyPaymentRequestDto> changes);
 }
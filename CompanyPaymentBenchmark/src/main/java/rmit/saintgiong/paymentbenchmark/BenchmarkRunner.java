@@ -0,0 +1,136 @@
+package rmit.saintgiong.paymentbenchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Runs the JMH benchmarks with the GC profiler attached, so every benchmark reports its
+ * allocation per operation next to its throughput.
+ *
+ * <pre>
+ *   java -jar benchmarks.jar [jmh options]
+ *   java -jar benchmarks.jar --write-baseline benchmark-baseline.properties [jmh options]
+ *   java -jar benchmarks.jar --baseline benchmark-baseline.properties [--threshold 10] [jmh options]
+ * </pre>
+ *
+ * With {@code --baseline} the run fails (exit code 1) when a benchmark's throughput drops, or its
+ * allocation per operation grows, by more than the threshold percentage against the stored file.
+ * Any other arguments are passed through to JMH unchanged.
+ */
+public final class BenchmarkRunner {
+
+    private static final String THROUGHPUT = ".throughput";
+
+    private static final String ALLOC = ".allocBytesPerOp";
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    // Below this many bytes per op, allocation differences are JIT noise (escape analysis flapping).
+    private static final double ALLOC_NOISE_BYTES = 64;
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path writeBaseline = null;
+        Path baseline = null;
+        double thresholdPercent = 10;
+        List<String> jmhArgs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--write-baseline" -> writeBaseline = Path.of(args[++i]);
+                case "--baseline" -> baseline = Path.of(args[++i]);
+                case "--threshold" -> thresholdPercent = Double.parseDouble(args[++i]);
+                default -> jmhArgs.add(args[i]);
+            }
+        }
+
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(jmhArgs.toArray(String[]::new)))
+                .addProfiler(GCProfiler.class)
+                .build();
+        Map<String, Double> scores = scores(new Runner(options).run());
+
+        if (writeBaseline != null) {
+            writeScores(writeBaseline, scores);
+            System.out.printf("Baseline written to %s (%d scores)%n", writeBaseline, scores.size());
+        }
+        if (baseline != null && !compare(readScores(baseline), scores, thresholdPercent)) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Double> scores(Collection<RunResult> results) {
+        Map<String, Double> scores = new TreeMap<>();
+        for (RunResult result : results) {
+            String name = result.getParams().getBenchmark();
+            scores.put(name + THROUGHPUT, result.getPrimaryResult().getScore());
+
+            Result<?> alloc = result.getSecondaryResults().get(ALLOC_METRIC);
+            if (alloc != null) scores.put(name + ALLOC, alloc.getScore());
+        }
+        return scores;
+    }
+
+    private static boolean compare(Map<String, Double> baseline, Map<String, Double> current, double thresholdPercent) {
+        double tolerance = thresholdPercent / 100;
+        boolean passed = true;
+
+        System.out.printf("%nComparison against baseline (threshold %.1f%%)%n", thresholdPercent);
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            Double expected = baseline.get(entry.getKey());
+            if (expected == null) {
+                System.out.printf("  NEW        %-90s %14.3f%n", entry.getKey(), entry.getValue());
+                continue;
+            }
+
+            double actual = entry.getValue();
+            boolean regressed = entry.getKey().endsWith(THROUGHPUT)
+                    ? actual < expected * (1 - tolerance)
+                    : actual > expected * (1 + tolerance) && actual - expected > ALLOC_NOISE_BYTES;
+            double change = expected == 0 ? 0 : (actual - expected) / expected * 100;
+
+            System.out.printf("  %-10s %-90s %14.3f -> %14.3f (%+.1f%%)%n",
+                    regressed ? "REGRESSED" : "ok", entry.getKey(), expected, actual, change);
+            passed &= !regressed;
+        }
+        return passed;
+    }
+
+    private static Map<String, Double> readScores(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        Map<String, Double> scores = new TreeMap<>();
+        properties.forEach((key, value) -> scores.put((String) key, Double.parseDouble((String) value)));
+        return scores;
+    }
+
+    private static void writeScores(Path file, Map<String, Double> scores) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                writer.write(entry.getKey() + "=" + String.format(Locale.ROOT, "%.3f", entry.getValue()) + System.lineSeparator());
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package rmit.saintgiong.paymentbenchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rmit.saintgiong.paymentapi.internal.common.dto.response.QueryCompanyPaymentResponseDto;
+import rmit.saintgiong.paymentapi.internal.common.type.PaymentMethod;
+import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
+import rmit.saintgiong.paymentservice.common.utils.UuidV7;
+import rmit.saintgiong.paymentservice.domain.mappers.CompanyPaymentMapper;
+import rmit.saintgiong.paymentservice.domain.mappers.CompanyPaymentMapperImpl;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentView;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
+import rmit.saintgiong.paymentservice.stripe.service.StripePaymentService;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row work on the payment read and write paths: entity mapping through MapStruct against
+ * the DTO projection, id generation, and the Stripe minor-unit conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentMappingBenchmark {
+
+    // toMinorUnits is private to the service; a constant MethodHandle is inlined like a direct call.
+    private static final MethodHandle TO_MINOR_UNITS;
+
+    static {
+        try {
+            TO_MINOR_UNITS = MethodHandles.privateLookupIn(StripePaymentService.class, MethodHandles.lookup())
+                    .findVirtual(StripePaymentService.class, "toMinorUnits", MethodType.methodType(long.class, Double.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final CompanyPaymentMapper mapper = new CompanyPaymentMapperImpl();
+
+    private final StripePaymentService stripePaymentService = new StripePaymentService(null);
+
+    private CompanyPaymentEntity entity;
+
+    private CompanyPaymentView view;
+
+    private Double amount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UUID id = UuidV7.generate();
+        UUID companyId = UUID.fromString("11111111-1111-1111-1111-111111111111");
+        LocalDateTime purchasedAt = LocalDateTime.now().minusDays(3);
+
+        entity = CompanyPaymentEntity.builder()
+                .id(id)
+                .companyId(companyId)
+                .amount(29.99)
+                .currency("USD")
+                .gateway("STRIPE")
+                .method(PaymentMethod.CREDIT_CARD)
+                .purchasedAt(purchasedAt)
+                .status(TransactionStatus.SUCCESSFUL)
+                .paymentTransactionId("pi_3QbT4zLkdIwHu7ix0Nw2Qm8R")
+                .build();
+        view = new CompanyPaymentView(id, companyId, 29.99, "USD", TransactionStatus.SUCCESSFUL,
+                PaymentMethod.CREDIT_CARD, "pi_3QbT4zLkdIwHu7ix0Nw2Qm8R", purchasedAt);
+        amount = 1234.565;
+    }
+
+    // What the service did before the projection: MapStruct plus the id fix-ups done by hand.
+    @Benchmark
+    public QueryCompanyPaymentResponseDto mapperToQueryResponse() {
+        QueryCompanyPaymentResponseDto response = mapper.toQueryResponse(entity);
+        response.setId(String.valueOf(entity.getId()));
+        response.setCompanyId(String.valueOf(entity.getCompanyId()));
+        return response;
+    }
+
+    @Benchmark
+    public QueryCompanyPaymentResponseDto viewToResponse() {
+        return view.toResponse();
+    }
+
+    @Benchmark
+    public UUID uuidV7() {
+        return UuidV7.generate();
+    }
+
+    @Benchmark
+    public UUID uuidV4() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    public long toMinorUnits() throws Throwable {
+        return (long) TO_MINOR_UNITS.invokeExact(stripePaymentService, amount);
+    }
+}
@@ -0,0 +1,87 @@
+package rmit.saintgiong.paymentbenchmark;
+
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
+import com.stripe.net.ApiResource;
+import com.stripe.net.Webhook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rmit.saintgiong.paymentapi.internal.common.stripe.CheckoutSessionInfo;
+import rmit.saintgiong.paymentservice.stripe.service.StripeEventPayloadExtractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Webhook ingestion on a realistic checkout.session.completed payload: signature verification,
+ * the streaming field extraction used by StripeCheckoutService.extractCheckoutSessionInfo, and
+ * the SDK object deserialization it replaced, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StripeWebhookBenchmark {
+
+    private static final String WEBHOOK_SECRET = "whsec_benchmark_0123456789abcdef";
+
+    // Long enough that the signed timestamp never ages out during a trial.
+    private static final long TOLERANCE_SECONDS = TimeUnit.DAYS.toSeconds(1);
+
+    private final StripeEventPayloadExtractor extractor = new StripeEventPayloadExtractor();
+
+    private String payload;
+
+    private String signatureHeader;
+
+    private Event event;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        payload = readPayload("payloads/checkout.session.completed.json");
+
+        long timestamp = Instant.now().getEpochSecond();
+        String signature = Webhook.Util.computeHmacSha256(WEBHOOK_SECRET, timestamp + "." + payload);
+        signatureHeader = "t=" + timestamp + ",v1=" + signature;
+
+        event = ApiResource.GSON.fromJson(payload, Event.class);
+    }
+
+    @Benchmark
+    public Event constructEvent() throws SignatureVerificationException {
+        return Webhook.constructEvent(payload, signatureHeader, WEBHOOK_SECRET, TOLERANCE_SECONDS);
+    }
+
+    @Benchmark
+    public CheckoutSessionInfo extractCheckoutSessionInfo() {
+        return extractor.extractCheckoutSessionInfo(payload);
+    }
+
+    @Benchmark
+    public StripeObject sdkDeserializeSession() throws EventDataObjectDeserializationException {
+        return event.getDataObjectDeserializer().deserializeUnsafe();
+    }
+
+    static String readPayload(String resource) throws IOException {
+        try (InputStream in = StripeWebhookBenchmark.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) throw new IOException("Missing benchmark resource " + resource);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
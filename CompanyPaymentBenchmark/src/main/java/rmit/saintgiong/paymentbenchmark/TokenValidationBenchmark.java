@@ -0,0 +1,124 @@
+package rmit.saintgiong.paymentbenchmark;
+
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.RSAEncrypter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rmit.saintgiong.paymentservice.common.config.JweConfig;
+import rmit.saintgiong.paymentservice.common.utils.JweTokenService;
+import rmit.saintgiong.paymentservice.common.utils.RsaKeyLoader;
+import rmit.saintgiong.paymentservice.common.utils.TokenStorageService;
+import rmit.saintgiong.shared.token.TokenClaimsDto;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access-token validation: the full JWE parse + RSA-OAEP decrypt that every request used to pay,
+ * against the cached path in {@link JweTokenService#validateAccessToken} for a token seen before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenValidationBenchmark {
+
+    private static final String ISSUER = "JM_BACKEND";
+
+    private JweTokenService tokenService;
+
+    private String accessToken;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+
+        JweConfig config = new JweConfig();
+        config.setIssuer(ISSUER);
+        config.setAccessTokenTtlSeconds(900);
+        config.setRefreshTokenTtlSeconds(604800);
+        config.setTokenCacheMaxSize(10_000);
+
+        RsaKeyLoader keyLoader = new RsaKeyLoader() {
+            @Override
+            public RSAPublicKey loadPublicKey() {
+                return (RSAPublicKey) keyPair.getPublic();
+            }
+
+            @Override
+            public RSAPrivateKey loadPrivateKey() {
+                return (RSAPrivateKey) keyPair.getPrivate();
+            }
+        };
+
+        // Blocklist lookups are measured separately; here they always answer "not blocked".
+        TokenStorageService tokenStorage = new TokenStorageService(null, null, null) {
+            @Override
+            public boolean isAccessTokenBlocked(String tokenId) {
+                return false;
+            }
+        };
+
+        tokenService = new JweTokenService(config, keyLoader, tokenStorage, new SimpleMeterRegistry());
+        tokenService.init();
+        accessToken = issueAccessToken((RSAPublicKey) keyPair.getPublic());
+
+        // Warm the cache so validateCached only ever hits it.
+        tokenService.validateAccessToken(accessToken);
+    }
+
+    @Benchmark
+    public TokenClaimsDto decryptCold() {
+        return tokenService.getTokenClaimsDtoDecryptedFromTokenString(accessToken);
+    }
+
+    @Benchmark
+    public TokenClaimsDto validateCached() {
+        return tokenService.validateAccessToken(accessToken);
+    }
+
+    // Mirrors the tokens minted by the auth service: RSA-OAEP-256 + A256GCM, iss/iat/exp in the header.
+    private static String issueAccessToken(RSAPublicKey publicKey) throws Exception {
+        long now = Instant.now().getEpochSecond();
+        JWEHeader header = JWEHeader.parse(Map.of(
+                "alg", "RSA-OAEP-256",
+                "enc", "A256GCM",
+                "iss", ISSUER,
+                "iat", now,
+                "exp", now + TimeUnit.DAYS.toSeconds(1)
+        ));
+        Payload payload = new Payload(Map.of(
+                "sub", UUID.randomUUID().toString(),
+                "email", "billing@nab.example.com",
+                "role", "COMPANY",
+                "type", "ACCESS",
+                "jti", UUID.randomUUID().toString()
+        ));
+
+        JWEObject jwe = new JWEObject(header, payload);
+        jwe.encrypt(new RSAEncrypter(publicKey));
+        return jwe.serialize();
+    }
+}
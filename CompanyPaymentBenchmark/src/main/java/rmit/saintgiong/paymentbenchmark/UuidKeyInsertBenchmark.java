@@ -0,0 +1,136 @@
+package rmit.saintgiong.paymentbenchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rmit.saintgiong.paymentservice.common.utils.UuidV7;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched primary-key inserts into Postgres with UUIDv7 against random UUIDv4 keys, on a table
+ * preloaded so its key index no longer fits in a few cached pages. Throughput is rows per second;
+ * at the end of each trial the key index size and bytes per row are printed, which is where the
+ * page splits of random keys show up.
+ *
+ * <p>Needs a Postgres it may create and drop a scratch table in (defaults to the local service
+ * database). Without one the trial fails in setup and JMH carries on with the other benchmarks:
+ * <pre>
+ *   java -jar benchmarks.jar UuidKeyInsertBenchmark -p jdbcUrl=jdbc:postgresql://localhost:5539/transaction_db
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UuidKeyInsertBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String TABLE = "bench_uuid_key_insert";
+
+    private static final UUID COMPANY_ID = UUID.fromString("11111111-1111-1111-1111-111111111111");
+
+    @Param({"v7", "v4"})
+    public String keyVersion;
+
+    @Param({"1000000"})
+    public int preloadRows;
+
+    @Param({"jdbc:postgresql://localhost:5539/transaction_db"})
+    public String jdbcUrl;
+
+    @Param({"postgres"})
+    public String user;
+
+    @Param({"postgres"})
+    public String password;
+
+    private Connection connection;
+
+    private PreparedStatement insert;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(jdbcUrl, user, password);
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " ("
+                    + "id uuid PRIMARY KEY, "
+                    + "company_id uuid NOT NULL, "
+                    + "amount double precision NOT NULL, "
+                    + "status varchar(32) NOT NULL, "
+                    + "purchased_at timestamp NOT NULL)");
+        }
+        connection.commit();
+
+        insert = connection.prepareStatement("INSERT INTO " + TABLE
+                + " (id, company_id, amount, status, purchased_at) VALUES (?, ?, ?, ?, ?)");
+        for (int loaded = 0; loaded < preloadRows; loaded += BATCH_SIZE) {
+            insertBatch();
+        }
+        // VACUUM refuses to run inside a transaction block.
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("VACUUM ANALYZE " + TABLE);
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_relation_size('" + TABLE + "_pkey'), count(*) FROM " + TABLE)) {
+            rs.next();
+            long indexBytes = rs.getLong(1);
+            long rows = rs.getLong(2);
+            System.out.printf("%n  keyVersion=%s rows=%d pkeyIndexBytes=%d bytesPerRow=%.1f%n",
+                    keyVersion, rows, indexBytes, rows == 0 ? 0 : (double) indexBytes / rows);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+        }
+        connection.commit();
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insertBatch() throws SQLException {
+        boolean v7 = "v7".equals(keyVersion);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setObject(1, v7 ? UuidV7.generate() : UUID.randomUUID());
+            insert.setObject(2, COMPANY_ID);
+            insert.setDouble(3, 29.99);
+            insert.setString(4, "SUCCESSFUL");
+            insert.setTimestamp(5, now);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+}
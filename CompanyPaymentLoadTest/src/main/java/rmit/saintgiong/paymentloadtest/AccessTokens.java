@@ -0,0 +1,67 @@
+package rmit.saintgiong.paymentloadtest;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.RSAEncrypter;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throwaway RSA key pair for a run. The service is started with it (key.public-key-b64 /
+ * key.private-key-b64) and the generator mints COMPANY access tokens with it, in the same shape
+ * as the auth service: RSA-OAEP-256 + A256GCM with iss/iat/exp in the protected header.
+ */
+public class AccessTokens {
+
+    static final String ISSUER = "JM_BACKEND";
+
+    private final KeyPair keyPair;
+
+    public AccessTokens() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        this.keyPair = generator.generateKeyPair();
+    }
+
+    public String publicKeyBase64() {
+        return Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+    }
+
+    public String privateKeyBase64() {
+        return Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+    }
+
+    // Valid for longer than any run, so the service decrypts each token once and then serves it from its cache.
+    public String companyAccessToken(UUID companyId) throws ParseException, JOSEException {
+        long now = Instant.now().getEpochSecond();
+        JWEHeader header = JWEHeader.parse(Map.of(
+                "alg", "RSA-OAEP-256",
+                "enc", "A256GCM",
+                "iss", ISSUER,
+                "iat", now,
+                "exp", now + TimeUnit.HOURS.toSeconds(12)
+        ));
+        Payload payload = new Payload(Map.of(
+                "sub", companyId.toString(),
+                "email", "billing+" + companyId.toString().substring(0, 8) + "@loadtest.example.com",
+                "role", "COMPANY",
+                "type", "ACCESS",
+                "jti", UUID.randomUUID().toString()
+        ));
+
+        JWEObject jwe = new JWEObject(header, payload);
+        jwe.encrypt(new RSAEncrypter((RSAPublicKey) keyPair.getPublic()));
+        return jwe.serialize();
+    }
+}
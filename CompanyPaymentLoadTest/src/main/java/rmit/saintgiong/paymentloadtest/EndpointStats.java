@@ -0,0 +1,92 @@
+package rmit.saintgiong.paymentloadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and outcome counts for one endpoint over the measured window. Latency runs from the
+ * time the request was scheduled to be sent, not from when it actually left, so a stalled service
+ * shows up in the percentiles instead of silently lowering the offered load.
+ */
+public class EndpointStats {
+
+    private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final String endpoint;
+
+    private final Recorder latency = new Recorder(MAX_TRACKABLE_NANOS, 3);
+
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    private final LongAdder errors = new LongAdder();
+
+    public EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @param outcome HTTP status code, or the exception class name when no response arrived
+     * @param error   true when the outcome is not one the scenario expects for this call
+     */
+    public void record(long scheduledNanos, String outcome, boolean error) {
+        long elapsed = Math.min(System.nanoTime() - scheduledNanos, MAX_TRACKABLE_NANOS);
+        latency.recordValue(Math.max(elapsed, 0));
+        outcomes.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+        if (error) errors.increment();
+    }
+
+    // Called when warm-up ends; a few in-flight warm-up requests may still land in the window.
+    public void reset() {
+        latency.reset();
+        outcomes.clear();
+        errors.reset();
+    }
+
+    public Snapshot snapshot(double measuredSeconds) {
+        Histogram histogram = latency.getIntervalHistogram();
+        Map<String, Long> byOutcome = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> byOutcome.put(outcome, count.sum()));
+
+        long requests = histogram.getTotalCount();
+        return new Snapshot(
+                endpoint,
+                requests,
+                requests / measuredSeconds,
+                requests == 0 ? 0 : (double) errors.sum() / requests,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()),
+                byOutcome
+        );
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public record Snapshot(
+            String endpoint,
+            long requests,
+            double throughput,
+            double errorRate,
+            double p50Ms,
+            double p90Ms,
+            double p99Ms,
+            double p999Ms,
+            double maxMs,
+            Map<String, Long> outcomes
+    ) {
+    }
+}
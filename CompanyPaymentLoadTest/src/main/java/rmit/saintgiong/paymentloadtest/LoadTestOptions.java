@@ -0,0 +1,110 @@
+package rmit.saintgiong.paymentloadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line options of a load-test run. Everything after a bare {@code --} is passed to the
+ * payment service as Spring Boot arguments, e.g. {@code -- --stripe.client.maxConcurrentCalls=64}.
+ *
+ * @param createsPerSecond arrival rate of {@code POST /}; webhooks and reads follow from the mix
+ * @param companies        distinct paying companies; too few and the service mostly reuses open sessions
+ * @param completeRatio    share of checkouts the payer completes (checkout.session.completed + payment_intent.succeeded)
+ * @param asyncFailRatio   share of checkouts whose delayed payment method fails (checkout.session.async_payment_failed)
+ * @param redeliveryRatio  share of webhooks Stripe delivers a second time
+ * @param statusReadRatio  share of checkouts whose status the frontend reads back with {@code GET /{id}}
+ * @param clientRetryRatio share of creates the client retries with the same Idempotency-Key
+ */
+public record LoadTestOptions(
+        Duration warmup,
+        Duration duration,
+        Duration drainTimeout,
+        double createsPerSecond,
+        int companies,
+        int httpThreads,
+        double completeRatio,
+        double asyncFailRatio,
+        double redeliveryRatio,
+        double statusReadRatio,
+        double clientRetryRatio,
+        long stripeLatencyMs,
+        double stripeErrorRate,
+        String dbUrl,
+        String dbUser,
+        String dbPassword,
+        Path reportDir,
+        String label,
+        Path baseline,
+        double thresholdPercent,
+        List<String> serviceArgs
+) {
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        List<String> serviceArgs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if ("--".equals(args[i])) {
+                serviceArgs.addAll(Arrays.asList(args).subList(i + 1, args.length));
+                break;
+            }
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got " + args[i]);
+            }
+            values.put(args[i].substring(2), args[++i]);
+        }
+
+        LoadTestOptions options = new LoadTestOptions(
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "15"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "120"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("drain-timeout", "60"))),
+                Double.parseDouble(values.getOrDefault("rate", "20")),
+                Integer.parseInt(values.getOrDefault("companies", "2000")),
+                Integer.parseInt(values.getOrDefault("http-threads", "32")),
+                Double.parseDouble(values.getOrDefault("complete-ratio", "0.70")),
+                Double.parseDouble(values.getOrDefault("async-fail-ratio", "0.03")),
+                Double.parseDouble(values.getOrDefault("redelivery-ratio", "0.08")),
+                Double.parseDouble(values.getOrDefault("status-read-ratio", "0.50")),
+                Double.parseDouble(values.getOrDefault("client-retry-ratio", "0.03")),
+                Long.parseLong(values.getOrDefault("stripe-latency-ms", "250")),
+                Double.parseDouble(values.getOrDefault("stripe-error-rate", "0")),
+                values.get("db-url"),
+                values.getOrDefault("db-user", "postgres"),
+                values.getOrDefault("db-password", "postgres"),
+                Path.of(values.getOrDefault("report-dir", "loadtest-reports")),
+                values.getOrDefault("label", "run"),
+                values.containsKey("baseline") ? Path.of(values.get("baseline")) : null,
+                Double.parseDouble(values.getOrDefault("threshold", "10")),
+                List.copyOf(serviceArgs)
+        );
+
+        if (options.completeRatio() + options.asyncFailRatio() > 1) {
+            throw new IllegalArgumentException("complete-ratio + async-fail-ratio must not exceed 1");
+        }
+        return options;
+    }
+
+    // Written into every report so runs are only compared against runs of the same shape.
+    public Map<String, String> describe() {
+        Map<String, String> run = new HashMap<>();
+        run.put("run.label", label);
+        run.put("run.warmupSeconds", String.valueOf(warmup.toSeconds()));
+        run.put("run.durationSeconds", String.valueOf(duration.toSeconds()));
+        run.put("run.createsPerSecond", String.valueOf(createsPerSecond));
+        run.put("run.companies", String.valueOf(companies));
+        run.put("run.mix.complete", String.valueOf(completeRatio));
+        run.put("run.mix.asyncFail", String.valueOf(asyncFailRatio));
+        run.put("run.mix.redelivery", String.valueOf(redeliveryRatio));
+        run.put("run.mix.statusRead", String.valueOf(statusReadRatio));
+        run.put("run.mix.clientRetry", String.valueOf(clientRetryRatio));
+        run.put("run.stripe.latencyMs", String.valueOf(stripeLatencyMs));
+        run.put("run.stripe.errorRate", String.valueOf(stripeErrorRate));
+        run.put("run.database", dbUrl == null ? "embedded" : dbUrl);
+        return run;
+    }
+}
@@ -0,0 +1,157 @@
+package rmit.saintgiong.paymentloadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * One run's results as flat {@code key=value} lines, sorted so two reports diff cleanly, plus a
+ * readable summary. A later run can be checked against a stored report with {@link #compareTo}.
+ */
+public class LoadTestReport {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // Below these, differences between runs are scheduling noise rather than regressions.
+    private static final double LATENCY_NOISE_MS = 1.0;
+
+    private static final double ERROR_RATE_NOISE = 0.001;
+
+    private final Map<String, String> values = new TreeMap<>();
+
+    private final List<EndpointStats.Snapshot> endpoints;
+
+    private final SettlementCheck.Result settlement;
+
+    public LoadTestReport(
+            LoadTestOptions options,
+            List<EndpointStats.Snapshot> endpoints,
+            SettlementCheck.Result settlement,
+            Map<String, String> stripeStats,
+            Map<String, String> serviceMeters,
+            boolean drained
+    ) {
+        this.endpoints = endpoints;
+        this.settlement = settlement;
+
+        values.putAll(options.describe());
+        values.put("run.drained", String.valueOf(drained));
+        for (EndpointStats.Snapshot endpoint : endpoints) {
+            String prefix = "endpoint." + key(endpoint.endpoint()) + ".";
+            values.put(prefix + "requests", String.valueOf(endpoint.requests()));
+            values.put(prefix + "throughput", format(endpoint.throughput()));
+            values.put(prefix + "errorRate", format(endpoint.errorRate()));
+            values.put(prefix + "p50Ms", format(endpoint.p50Ms()));
+            values.put(prefix + "p90Ms", format(endpoint.p90Ms()));
+            values.put(prefix + "p99Ms", format(endpoint.p99Ms()));
+            values.put(prefix + "p999Ms", format(endpoint.p999Ms()));
+            values.put(prefix + "maxMs", format(endpoint.maxMs()));
+            endpoint.outcomes().forEach((outcome, count) -> values.put(prefix + "outcome." + outcome, String.valueOf(count)));
+        }
+        values.putAll(settlement.describe());
+        values.putAll(stripeStats);
+        values.putAll(serviceMeters);
+    }
+
+    /**
+     * Writes {@code <label>-<timestamp>.properties} and a {@code .txt} summary next to it.
+     *
+     * @return the properties file, usable as a later run's --baseline
+     */
+    public Path write(Path dir, String label) throws IOException {
+        Files.createDirectories(dir);
+        String name = label + "-" + LocalDateTime.now().format(FILE_TIMESTAMP);
+
+        Path file = dir.resolve(name + ".properties");
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue() + System.lineSeparator());
+            }
+        }
+        Files.writeString(dir.resolve(name + ".txt"), summary());
+        return file;
+    }
+
+    public String summary() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-22s %9s %9s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (EndpointStats.Snapshot e : endpoints) {
+            out.append(String.format(Locale.ROOT, "%-22s %9d %9.1f %7.2f%% %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    e.endpoint(), e.requests(), e.throughput(), e.errorRate() * 100,
+                    e.p50Ms(), e.p90Ms(), e.p99Ms(), e.p999Ms(), e.maxMs()));
+            out.append("    outcomes ").append(e.outcomes()).append(System.lineSeparator());
+        }
+        out.append(String.format(Locale.ROOT,
+                "%nsettlement: created=%d successful=%d failed=%d pending=%d mismatched=%d inboxBacklog=%d deadLettered=%d settledIn=%.1fs%n",
+                settlement.created(), settlement.successful(), settlement.failed(), settlement.pending(),
+                settlement.mismatched(), settlement.inboxBacklog(), settlement.inboxDeadLettered(), settlement.secondsToSettle()));
+        return out.toString();
+    }
+
+    /**
+     * Prints each endpoint's throughput, p50, p99 and error rate against the baseline report.
+     *
+     * @return false when any of them regressed by more than {@code thresholdPercent}, or any
+     *         payment settled in the wrong status
+     */
+    public boolean compareTo(Path baselineFile, double thresholdPercent) throws IOException {
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(baselineFile)) {
+            baseline.load(reader);
+        }
+        double tolerance = thresholdPercent / 100;
+        boolean passed = true;
+
+        System.out.printf("%nComparison against %s (threshold %.1f%%)%n", baselineFile, thresholdPercent);
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String key = entry.getKey();
+            if (key.startsWith("run.") && !key.equals("run.drained") && !entry.getValue().equals(baseline.getProperty(key))) {
+                System.out.printf("  WARNING    %s differs from the baseline run (%s vs %s); results may not be comparable%n",
+                        key, baseline.getProperty(key), entry.getValue());
+            }
+            if (!key.startsWith("endpoint.") || baseline.getProperty(key) == null) continue;
+
+            double expected = Double.parseDouble(baseline.getProperty(key));
+            double actual = Double.parseDouble(entry.getValue());
+            boolean regressed;
+            if (key.endsWith(".throughput")) {
+                regressed = actual < expected * (1 - tolerance);
+            } else if (key.endsWith(".p50Ms") || key.endsWith(".p99Ms")) {
+                regressed = actual > expected * (1 + tolerance) && actual - expected > LATENCY_NOISE_MS;
+            } else if (key.endsWith(".errorRate")) {
+                regressed = actual > expected * (1 + tolerance) && actual - expected > ERROR_RATE_NOISE;
+            } else {
+                continue;
+            }
+
+            double change = expected == 0 ? 0 : (actual - expected) / expected * 100;
+            System.out.printf(Locale.ROOT, "  %-10s %-45s %12.3f -> %12.3f (%+.1f%%)%n",
+                    regressed ? "REGRESSED" : "ok", key, expected, actual, change);
+            passed &= !regressed;
+        }
+
+        if (settlement.mismatched() > 0) {
+            System.out.printf("  FAILED     settlement.mismatched=%d%n", settlement.mismatched());
+            passed = false;
+        }
+        return passed;
+    }
+
+    private static String key(String endpoint) {
+        return endpoint.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_").replaceAll("^_|_$", "");
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,109 @@
+package rmit.saintgiong.paymentloadtest;
+
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import rmit.saintgiong.paymentservice.JmCompanyPaymentApplication;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * End-to-end load test of the payment service. Starts the local stand-ins, boots the service
+ * against them in this JVM, drives the checkout workload, waits for webhooks to settle, and writes
+ * a report to --report-dir.
+ *
+ * <pre>
+ *   java -jar loadtest.jar --rate 50 --duration 300
+ *   java -jar loadtest.jar --rate 50 --duration 300 --baseline loadtest-reports/run-20261017-101500.properties
+ *   java -jar loadtest.jar --db-url jdbc:postgresql://localhost:5539/loadtest_db -- --stripe.webhook.inbox.workers=8
+ * </pre>
+ *
+ * The generator shares the machine with the service, so pin the rate well below the saturation
+ * point of the generator itself; past that, latency numbers describe the generator.
+ */
+@Slf4j
+public final class LoadTestRunner {
+
+    // Service meters copied into the report, so server-side outcomes can be compared across runs too.
+    private static final List<String> SERVICE_METER_PREFIXES = List.of("payment.", "stripe.", "security.");
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        AccessTokens tokens = new AccessTokens();
+        StripeEvents events = new StripeEvents("whsec_loadtest_" + UUID.randomUUID().toString().replace("-", ""));
+        boolean passed = true;
+
+        try (LocalInfrastructure infrastructure = new LocalInfrastructure(options)) {
+            infrastructure.start();
+
+            List<String> serviceArgs = new ArrayList<>(infrastructure.serviceArgs(tokens, events));
+            serviceArgs.addAll(options.serviceArgs());
+
+            try (ConfigurableApplicationContext service = SpringApplication.run(JmCompanyPaymentApplication.class, serviceArgs.toArray(String[]::new))) {
+                int port = service.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                log.info("method=main, message=Payment service started, port={}", port);
+
+                LoadTestReport report;
+                try (WorkloadGenerator generator = new WorkloadGenerator(URI.create("http://127.0.0.1:" + port), options, events, tokens)) {
+                    generator.run();
+                    boolean drained = generator.drain(options.drainTimeout());
+
+                    SettlementCheck.Result settlement = new SettlementCheck(infrastructure.jdbcUrl(), options.dbUser(), options.dbPassword())
+                            .await(generator.createdPayments(), generator.completedPayments(), generator.failedPayments(), options.drainTimeout());
+
+                    report = new LoadTestReport(
+                            options,
+                            generator.snapshots(),
+                            settlement,
+                            infrastructure.stripe().stats(),
+                            serviceMeters(service.getBean(MeterRegistry.class)),
+                            drained
+                    );
+                }
+
+                Path file = report.write(options.reportDir(), options.label());
+                System.out.println();
+                System.out.print(report.summary());
+                System.out.printf("%nReport written to %s%n", file);
+
+                if (options.baseline() != null) {
+                    passed = report.compareTo(options.baseline(), options.thresholdPercent());
+                }
+            }
+        }
+
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static Map<String, String> serviceMeters(MeterRegistry registry) {
+        Map<String, String> values = new TreeMap<>();
+        for (Meter meter : registry.getMeters()) {
+            Meter.Id id = meter.getId();
+            if (SERVICE_METER_PREFIXES.stream().noneMatch(id.getName()::startsWith)) continue;
+
+            StringBuilder key = new StringBuilder("service.").append(id.getName());
+            for (Tag tag : id.getTags()) {
+                key.append('.').append(tag.getKey()).append('-').append(tag.getValue().replaceAll("[\\s=:]+", "_"));
+            }
+            for (Measurement measurement : meter.measure()) {
+                values.put(key + "." + measurement.getStatistic().name().toLowerCase(Locale.ROOT),
+                        String.format(Locale.ROOT, "%.3f", measurement.getValue()));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,129 @@
+package rmit.saintgiong.paymentloadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The service's dependencies, started locally for one run: Postgres (embedded, or an existing
+ * database via --db-url), Redis with keyspace notifications on, a single-node KRaft Kafka broker
+ * with an in-memory schema registry, and the Stripe API stub. Stopped in reverse order on close.
+ */
+@Slf4j
+public class LocalInfrastructure implements AutoCloseable {
+
+    // KafkaAvroSerializer resolves mock:// URLs to an in-process registry shared by name.
+    private static final String SCHEMA_REGISTRY_URL = "mock://payment-loadtest";
+
+    private final LoadTestOptions options;
+
+    private final StripeApiStub stripe;
+
+    private EmbeddedPostgres postgres;
+
+    private RedisServer redis;
+
+    private EmbeddedKafkaKraftBroker kafka;
+
+    private String jdbcUrl;
+
+    private int redisPort;
+
+    public LocalInfrastructure(LoadTestOptions options) {
+        this.options = options;
+        this.stripe = new StripeApiStub(options.stripeLatencyMs(), options.stripeErrorRate());
+    }
+
+    public void start() throws IOException {
+        if (options.dbUrl() != null) {
+            jdbcUrl = options.dbUrl();
+        } else {
+            postgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = postgres.getJdbcUrl("postgres", "postgres");
+        }
+        log.info("method=start, message=Database ready, url={}", jdbcUrl);
+
+        redisPort = freePort();
+        redis = RedisServer.newRedisServer()
+                .port(redisPort)
+                .setting("bind 127.0.0.1")
+                .setting("notify-keyspace-events Kg$x")
+                .setting("save \"\"")
+                .build();
+        redis.start();
+        log.info("method=start, message=Redis ready, port={}", redisPort);
+
+        kafka = new EmbeddedKafkaKraftBroker(1, 1);
+        kafka.brokerProperties(Map.of("auto.create.topics.enable", "true"));
+        kafka.afterPropertiesSet();
+        log.info("method=start, message=Kafka ready, brokers={}", kafka.getBrokersAsString());
+
+        stripe.start();
+    }
+
+    public StripeApiStub stripe() {
+        return stripe;
+    }
+
+    public String jdbcUrl() {
+        return jdbcUrl;
+    }
+
+    /**
+     * Spring Boot arguments pointing the service at the stand-ins. They are passed on the command
+     * line so they win over application.yml and any .env file the working directory has.
+     */
+    public List<String> serviceArgs(AccessTokens tokens, StripeEvents events) {
+        List<String> args = new ArrayList<>();
+        args.add("--server.port=0");
+        args.add("--spring.datasource.url=" + jdbcUrl);
+        args.add("--spring.datasource.username=" + options.dbUser());
+        args.add("--spring.datasource.password=" + options.dbPassword());
+        args.add("--spring.data.redis.host=127.0.0.1");
+        args.add("--spring.data.redis.port=" + redisPort);
+        args.add("--spring.data.redis.password=");
+        args.add("--spring.kafka.bootstrap-servers=" + kafka.getBrokersAsString());
+        args.add("--spring.kafka.properties.schema.registry.url=" + SCHEMA_REGISTRY_URL);
+        args.add("--eureka.client.enabled=false");
+        args.add("--key.public-key-b64=" + tokens.publicKeyBase64());
+        args.add("--key.private-key-b64=" + tokens.privateKeyBase64());
+        args.add("--jwe.issuer=" + AccessTokens.ISSUER);
+        args.add("--stripe.apiKey=sk_test_loadtest");
+        args.add("--stripe.apiBase=" + stripe.apiBase());
+        args.add("--stripe.webhookSecret=" + events.webhookSecret());
+        // Console logging of every statement and request would measure the terminal, not the service.
+        args.add("--spring.jpa.show-sql=false");
+        args.add("--logging.level.root=WARN");
+        args.add("--logging.level.rmit.saintgiong.paymentloadtest=INFO");
+        return args;
+    }
+
+    @Override
+    public void close() {
+        stripe.close();
+        if (kafka != null) kafka.destroy();
+        try {
+            if (redis != null) redis.stop();
+        } catch (IOException e) {
+            log.warn("method=close, message=Failed to stop Redis, err={}", e.getMessage());
+        }
+        try {
+            if (postgres != null) postgres.close();
+        } catch (IOException e) {
+            log.warn("method=close, message=Failed to stop Postgres, err={}", e.getMessage());
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package rmit.saintgiong.paymentloadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * After the traffic stops, waits for the webhook inbox to drain and checks that every payment the
+ * generator created ended in the status its webhooks imply. Throughput that loses or misapplies
+ * webhooks is not capacity, so the report carries this next to the latency numbers.
+ */
+@Slf4j
+public class SettlementCheck {
+
+    private final String jdbcUrl;
+
+    private final String user;
+
+    private final String password;
+
+    public SettlementCheck(String jdbcUrl, String user, String password) {
+        this.jdbcUrl = jdbcUrl;
+        this.user = user;
+        this.password = password;
+    }
+
+    public Result await(Set<String> created, Set<String> completed, Set<String> failed, Duration timeout)
+            throws SQLException, InterruptedException {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, user, password)) {
+            long started = System.nanoTime();
+            long deadline = started + timeout.toNanos();
+            long backlog;
+            while ((backlog = count(connection, "SELECT count(*) FROM stripe_webhook_inbox WHERE status IN ('PENDING', 'PROCESSING')")) > 0
+                    && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(250);
+            }
+            double secondsToSettle = (System.nanoTime() - started) / 1e9;
+            long deadLettered = count(connection, "SELECT count(*) FROM stripe_webhook_inbox WHERE status = 'FAILED'");
+
+            Map<String, String> statuses = statuses(connection, created);
+            long successful = 0, failedCount = 0, pending = 0, mismatched = 0;
+            for (String paymentId : created) {
+                String expected = completed.contains(paymentId) ? "SUCCESSFUL" : failed.contains(paymentId) ? "FAILED" : "PENDING";
+                String actual = statuses.get(paymentId);
+                if ("SUCCESSFUL".equals(actual)) successful++;
+                else if ("FAILED".equals(actual)) failedCount++;
+                else if ("PENDING".equals(actual)) pending++;
+                if (!expected.equals(actual)) mismatched++;
+            }
+
+            if (mismatched > 0) {
+                log.warn("method=await, message=Payments not in the status their webhooks imply, mismatched={}", mismatched);
+            }
+            return new Result(created.size(), successful, failedCount, pending, mismatched, backlog, deadLettered, secondsToSettle);
+        }
+    }
+
+    private static long count(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet rows = statement.executeQuery()) {
+            rows.next();
+            return rows.getLong(1);
+        }
+    }
+
+    private static Map<String, String> statuses(Connection connection, Set<String> paymentIds) throws SQLException {
+        Map<String, String> statuses = new HashMap<>();
+        Array ids = connection.createArrayOf("uuid", paymentIds.toArray());
+        try (PreparedStatement statement = connection.prepareStatement("SELECT id::text, status FROM transactions WHERE id = ANY(?)")) {
+            statement.setArray(1, ids);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    statuses.put(rows.getString(1), rows.getString(2));
+                }
+            }
+        } finally {
+            ids.free();
+        }
+        return statuses;
+    }
+
+    /**
+     * @param mismatched   created payments whose stored status differs from the one their webhooks imply
+     * @param inboxBacklog inbox events still pending when the wait timed out
+     */
+    public record Result(
+            long created,
+            long successful,
+            long failed,
+            long pending,
+            long mismatched,
+            long inboxBacklog,
+            long inboxDeadLettered,
+            double secondsToSettle
+    ) {
+
+        public Map<String, String> describe() {
+            Map<String, String> values = new HashMap<>();
+            values.put("settlement.created", String.valueOf(created));
+            values.put("settlement.successful", String.valueOf(successful));
+            values.put("settlement.failed", String.valueOf(failed));
+            values.put("settlement.pending", String.valueOf(pending));
+            values.put("settlement.mismatched", String.valueOf(mismatched));
+            values.put("settlement.inboxBacklog", String.valueOf(inboxBacklog));
+            values.put("settlement.inboxDeadLettered", String.valueOf(inboxDeadLettered));
+            values.put("settlement.secondsToSettle", String.format(Locale.ROOT, "%.3f", secondsToSettle));
+            return values;
+        }
+    }
+}
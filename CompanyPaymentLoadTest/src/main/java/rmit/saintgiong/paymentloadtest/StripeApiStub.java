@@ -0,0 +1,255 @@
+package rmit.saintgiong.paymentloadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal stand-in for the Stripe API, reached through {@code stripe.apiBase}. Answers
+ * {@code POST /v1/checkout/sessions} with an open session after a configurable delay, replays the
+ * same session for a repeated Idempotency-Key like Stripe does, and can fail a share of calls.
+ * Like Stripe, a repeated key whose parameters differ from the first request gets a 400
+ * {@code idempotency_error}. Every other path gets Stripe's 404 error body.
+ */
+@Slf4j
+public class StripeApiStub implements AutoCloseable {
+
+    private static final String SESSIONS_PATH = "/v1/checkout/sessions";
+
+    private final long latencyMs;
+
+    private final double errorRate;
+
+    // The first response for a key, with a hash of the parameters it was created from.
+    private record KeyedSession(String paramsHash, String body) {
+    }
+
+    private final Map<String, KeyedSession> sessionsByIdempotencyKey = new ConcurrentHashMap<>();
+
+    private final AtomicLong sessionsCreated = new AtomicLong();
+
+    private final AtomicLong idempotentReplays = new AtomicLong();
+
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private final AtomicLong idempotencyErrors = new AtomicLong();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private HttpServer server;
+
+    public StripeApiStub(long latencyMs, double errorRate) {
+        this.latencyMs = latencyMs;
+        this.errorRate = errorRate;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        log.info("method=start, message=Stripe API stub listening, apiBase={}", apiBase());
+    }
+
+    public String apiBase() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    // Checkout sessions and their payment intents share a suffix, so webhooks can name both.
+    public static String paymentIntentIdFor(String sessionId) {
+        return "pi_" + sessionId.substring(sessionId.lastIndexOf('_') + 1);
+    }
+
+    public Map<String, String> stats() {
+        Map<String, String> stats = new HashMap<>();
+        stats.put("stripeStub.sessionsCreated", String.valueOf(sessionsCreated.get()));
+        stats.put("stripeStub.idempotentReplays", String.valueOf(idempotentReplays.get()));
+        stats.put("stripeStub.injectedErrors", String.valueOf(injectedErrors.get()));
+        stats.put("stripeStub.idempotencyErrors", String.valueOf(idempotencyErrors.get()));
+        return stats;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+
+            if (!"POST".equals(exchange.getRequestMethod()) || !SESSIONS_PATH.equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, 404, error("invalid_request_error", "Unrecognized request URL (stub only serves " + SESSIONS_PATH + ")"));
+                return;
+            }
+
+            simulateLatency();
+
+            Map<String, String> params = parseForm(body);
+            String paramsHash = paramsHash(params);
+            String idempotencyKey = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+            if (idempotencyKey != null) {
+                KeyedSession previous = sessionsByIdempotencyKey.get(idempotencyKey);
+                if (previous != null) {
+                    replay(exchange, idempotencyKey, previous, paramsHash);
+                    return;
+                }
+            }
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                respond(exchange, 500, error("api_error", "Injected failure from the load-test Stripe stub"));
+                return;
+            }
+
+            String session = checkoutSession(params);
+            if (idempotencyKey != null) {
+                KeyedSession raced = sessionsByIdempotencyKey.putIfAbsent(idempotencyKey, new KeyedSession(paramsHash, session));
+                if (raced != null) {
+                    replay(exchange, idempotencyKey, raced, paramsHash);
+                    return;
+                }
+            }
+            sessionsCreated.incrementAndGet();
+            respond(exchange, 200, session);
+        } catch (RuntimeException e) {
+            log.warn("method=handle, message=Stripe stub failed to answer, err={}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void replay(HttpExchange exchange, String idempotencyKey, KeyedSession previous, String paramsHash) throws IOException {
+        if (!previous.paramsHash().equals(paramsHash)) {
+            idempotencyErrors.incrementAndGet();
+            respond(exchange, 400, error("idempotency_error",
+                    "Keys for idempotent requests can only be used with the same parameters they were first used with. "
+                            + "Try using a key other than '" + idempotencyKey + "' if you meant to execute a different request."));
+            return;
+        }
+        idempotentReplays.incrementAndGet();
+        exchange.getResponseHeaders().add("Idempotent-Replayed", "true");
+        respond(exchange, 200, previous.body());
+    }
+
+    // Order-insensitive, so only a change in a parameter's value counts as a different request.
+    private static String paramsHash(Map<String, String> params) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            new TreeMap<>(params).forEach((key, value) -> {
+                digest.update(key.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '=');
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '&');
+            });
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Log-normal-ish delay around latencyMs: most calls near the median, a long tail like the real API.
+    private void simulateLatency() {
+        if (latencyMs <= 0) return;
+
+        double factor = Math.exp(ThreadLocalRandom.current().nextGaussian() * 0.35);
+        try {
+            TimeUnit.MICROSECONDS.sleep((long) (latencyMs * 1000 * factor));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String checkoutSession(Map<String, String> params) {
+        String sessionId = "cs_test_" + UUID.randomUUID().toString().replace("-", "");
+        long created = Instant.now().getEpochSecond();
+        String paymentId = params.getOrDefault("metadata[paymentId]", "");
+        String companyId = params.getOrDefault("metadata[companyId]", "");
+
+        return """
+                {
+                  "id": "%s",
+                  "object": "checkout.session",
+                  "amount_total": %s,
+                  "client_reference_id": %s,
+                  "created": %d,
+                  "currency": "%s",
+                  "expires_at": %d,
+                  "livemode": false,
+                  "metadata": {"paymentId": "%s", "companyId": "%s"},
+                  "mode": "payment",
+                  "payment_intent": "%s",
+                  "payment_status": "unpaid",
+                  "status": "open",
+                  "success_url": %s,
+                  "cancel_url": %s,
+                  "url": "https://checkout.stripe.com/c/pay/%s"
+                }
+                """.formatted(
+                sessionId,
+                params.getOrDefault("line_items[0][price_data][unit_amount]", "0"),
+                jsonString(params.get("client_reference_id")),
+                created,
+                params.getOrDefault("line_items[0][price_data][currency]", "usd"),
+                created + TimeUnit.HOURS.toSeconds(24),
+                paymentId,
+                companyId,
+                paymentIntentIdFor(sessionId),
+                jsonString(params.get("success_url")),
+                jsonString(params.get("cancel_url")),
+                sessionId
+        );
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> params = new HashMap<>();
+        if (body.isEmpty()) return params;
+
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static String jsonString(String value) {
+        return value == null ? "null" : "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static String error(String type, String message) {
+        return "{\"error\": {\"type\": \"" + type + "\", \"message\": \"" + message + "\"}}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.getResponseHeaders().add("Request-Id", "req_" + UUID.randomUUID().toString().replace("-", "").substring(0, 14));
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) server.stop(0);
+        executor.shutdownNow();
+    }
+}
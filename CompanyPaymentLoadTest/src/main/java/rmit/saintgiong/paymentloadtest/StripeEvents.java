@@ -0,0 +1,84 @@
+package rmit.saintgiong.paymentloadtest;
+
+import com.stripe.net.Webhook;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Builds the webhook events Stripe sends for a checkout, trimmed to the fields the service and
+ * the SDK's event parsing look at, and signs them with the run's webhook secret.
+ */
+public class StripeEvents {
+
+    static final String CHECKOUT_COMPLETED = "checkout.session.completed";
+
+    static final String CHECKOUT_ASYNC_FAILED = "checkout.session.async_payment_failed";
+
+    static final String PAYMENT_INTENT_SUCCEEDED = "payment_intent.succeeded";
+
+    private final String webhookSecret;
+
+    public StripeEvents(String webhookSecret) {
+        this.webhookSecret = webhookSecret;
+    }
+
+    public String webhookSecret() {
+        return webhookSecret;
+    }
+
+    public String checkoutSession(String type, String paymentId, String sessionId, String paymentStatus) {
+        return event(type, """
+                {
+                      "id": "%s",
+                      "object": "checkout.session",
+                      "client_reference_id": "%s",
+                      "metadata": {"paymentId": "%s"},
+                      "mode": "payment",
+                      "payment_intent": "%s",
+                      "payment_status": "%s",
+                      "status": "complete"
+                    }""".formatted(sessionId, paymentId, paymentId, StripeApiStub.paymentIntentIdFor(sessionId), paymentStatus));
+    }
+
+    public String paymentIntentSucceeded(String sessionId) {
+        String paymentIntentId = StripeApiStub.paymentIntentIdFor(sessionId);
+        return event(PAYMENT_INTENT_SUCCEEDED, """
+                {
+                      "id": "%s",
+                      "object": "payment_intent",
+                      "latest_charge": "%s",
+                      "status": "succeeded"
+                    }""".formatted(paymentIntentId, paymentIntentId.replace("pi_", "ch_")));
+    }
+
+    // Stripe signs every delivery afresh, redeliveries included: t=<unix seconds>,v1=<hex HMAC-SHA256 of "t.payload">.
+    public String signatureHeader(String payload) {
+        long timestamp = Instant.now().getEpochSecond();
+        try {
+            return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(webhookSecret, timestamp + "." + payload);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException("Cannot sign webhook payload", e);
+        }
+    }
+
+    private static String event(String type, String dataObject) {
+        return """
+                {
+                  "id": "evt_%s",
+                  "object": "event",
+                  "api_version": "2023-10-16",
+                  "created": %d,
+                  "data": {
+                    "object": %s
+                  },
+                  "livemode": false,
+                  "pending_webhooks": 1,
+                  "request": {"id": null, "idempotency_key": null},
+                  "type": "%s"
+                }
+                """.formatted(UUID.randomUUID().toString().replace("-", ""), Instant.now().getEpochSecond(), dataObject, type);
+    }
+}
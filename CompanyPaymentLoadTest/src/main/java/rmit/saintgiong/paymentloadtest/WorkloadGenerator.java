@@ -0,0 +1,292 @@
+package rmit.saintgiong.paymentloadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open-model traffic against a running payment service. Checkouts are created at a fixed arrival
+ * rate regardless of how fast the service answers; each created checkout then plays out like a
+ * real one: the frontend may read its status, the client may retry the create, and Stripe sends
+ * the completion or failure webhooks after the payer's delay, occasionally more than once.
+ */
+@Slf4j
+public class WorkloadGenerator implements AutoCloseable {
+
+    static final String CREATE = "POST /";
+
+    static final String STATUS = "GET /{id}";
+
+    static final String WEBHOOK = "POST /stripe/webhook";
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([^\"]+)\"");
+
+    private static final Pattern SESSION_ID = Pattern.compile("\"stripeCheckoutSessionId\"\\s*:\\s*\"([^\"]+)\"");
+
+    // Weighted towards the monthly subscription price, which is most of the real traffic.
+    private static final double[] AMOUNTS = {29.99, 29.99, 29.99, 29.99, 99.00, 299.00};
+
+    private static final String[] CURRENCIES = {"USD", "USD", "USD", "AUD", "SGD"};
+
+    private static final String[] METHODS = {"CREDIT_CARD", "CREDIT_CARD", "VISA", "E_WALLET"};
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUri;
+
+    private final LoadTestOptions options;
+
+    private final StripeEvents events;
+
+    private final List<UUID> companies = new ArrayList<>();
+
+    private final Map<UUID, String> accessTokens = new ConcurrentHashMap<>();
+
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+
+    private final ExecutorService httpExecutor;
+
+    private final HttpClient http;
+
+    private final ScheduledExecutorService followUps = Executors.newScheduledThreadPool(4);
+
+    // Requests sent or scheduled that have not completed yet; the run drains this to zero.
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final Set<String> createdPayments = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> completedPayments = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> failedPayments = ConcurrentHashMap.newKeySet();
+
+    public WorkloadGenerator(URI baseUri, LoadTestOptions options, StripeEvents events, AccessTokens tokens) throws Exception {
+        this.baseUri = baseUri;
+        this.options = options;
+        this.events = events;
+
+        for (int i = 0; i < options.companies(); i++) {
+            UUID companyId = UUID.randomUUID();
+            companies.add(companyId);
+            accessTokens.put(companyId, tokens.companyAccessToken(companyId));
+        }
+        for (String endpoint : List.of(CREATE, STATUS, WEBHOOK)) {
+            stats.put(endpoint, new EndpointStats(endpoint));
+        }
+
+        this.httpExecutor = Executors.newFixedThreadPool(options.httpThreads());
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(httpExecutor)
+                .build();
+    }
+
+    public void run() {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.createsPerSecond());
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        boolean measuring = options.warmup().isZero();
+
+        log.info("method=run, message=Generating load, createsPerSecond={}, warmup={}, duration={}",
+                options.createsPerSecond(), options.warmup(), options.duration());
+
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * intervalNanos;
+            if (scheduled >= end) break;
+
+            if (!measuring && scheduled >= measureFrom) {
+                stats.values().forEach(EndpointStats::reset);
+                measuring = true;
+                log.info("method=run, message=Warm-up finished, measuring");
+            }
+
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+            createPayment(scheduled);
+        }
+    }
+
+    /**
+     * Waits for follow-up webhooks, reads and in-flight requests scheduled during the run.
+     *
+     * @return false when the drain timeout passed with requests still outstanding
+     */
+    public boolean drain(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (outstanding.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                log.warn("method=drain, message=Drain timed out, outstanding={}", outstanding.get());
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        return true;
+    }
+
+    public List<EndpointStats.Snapshot> snapshots() {
+        double seconds = options.duration().toMillis() / 1000.0;
+        return stats.values().stream().map(s -> s.snapshot(seconds)).toList();
+    }
+
+    public Set<String> createdPayments() {
+        return createdPayments;
+    }
+
+    public Set<String> completedPayments() {
+        return completedPayments;
+    }
+
+    public Set<String> failedPayments() {
+        return failedPayments;
+    }
+
+    private void createPayment(long scheduled) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID companyId = companies.get(random.nextInt(companies.size()));
+        String body = """
+                {"companyId": "%s", "amount": %s, "currency": "%s", "method": "%s"}"""
+                .formatted(companyId, AMOUNTS[random.nextInt(AMOUNTS.length)],
+                        CURRENCIES[random.nextInt(CURRENCIES.length)], METHODS[random.nextInt(METHODS.length)]);
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        send(CREATE, createRequest(companyId, body, idempotencyKey), scheduled, 201, response -> {
+            String paymentId = group(ID, response);
+            String sessionId = group(SESSION_ID, response);
+            if (paymentId == null || sessionId == null) return;
+
+            createdPayments.add(paymentId);
+            playOut(companyId, body, idempotencyKey, paymentId, sessionId);
+        });
+    }
+
+    private void playOut(UUID companyId, String body, String idempotencyKey, String paymentId, String sessionId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if (random.nextDouble() < options.clientRetryRatio()) {
+            later(random.nextLong(100, 500), scheduled ->
+                    send(CREATE, createRequest(companyId, body, idempotencyKey), scheduled, 201, null));
+        }
+        if (random.nextDouble() < options.statusReadRatio()) {
+            later(random.nextLong(300, 1500), scheduled ->
+                    send(STATUS, authorized(companyId, "/" + paymentId).GET().build(), scheduled, 200, null));
+        }
+
+        // Time the payer spends on the hosted checkout page before Stripe reports the outcome.
+        long payerDelayMs = random.nextLong(1000, 4000);
+        double outcome = random.nextDouble();
+        if (outcome < options.completeRatio()) {
+            completedPayments.add(paymentId);
+            later(payerDelayMs, scheduled -> webhook(events.checkoutSession(StripeEvents.CHECKOUT_COMPLETED, paymentId, sessionId, "paid"), scheduled));
+            later(payerDelayMs + random.nextLong(50, 300), scheduled -> webhook(events.paymentIntentSucceeded(sessionId), scheduled));
+        } else if (outcome < options.completeRatio() + options.asyncFailRatio()) {
+            failedPayments.add(paymentId);
+            later(payerDelayMs, scheduled -> webhook(events.checkoutSession(StripeEvents.CHECKOUT_ASYNC_FAILED, paymentId, sessionId, "unpaid"), scheduled));
+        }
+        // Otherwise the payer abandons the checkout and no webhook follows.
+    }
+
+    private void webhook(String payload, long scheduled) {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/stripe/webhook"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Stripe-Signature", events.signatureHeader(payload))
+                .POST(HttpRequest.BodyPublishers.ofString(payload))
+                .build();
+        send(WEBHOOK, request, scheduled, 200, null);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < options.redeliveryRatio()) {
+            // Same event id, signed again: the service must acknowledge it without reprocessing.
+            later(random.nextLong(1000, 5000), redelivery -> send(WEBHOOK, HttpRequest.newBuilder(request.uri())
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .header("Stripe-Signature", events.signatureHeader(payload))
+                    .POST(HttpRequest.BodyPublishers.ofString(payload))
+                    .build(), redelivery, 200, null));
+        }
+    }
+
+    private HttpRequest createRequest(UUID companyId, String body, String idempotencyKey) {
+        return authorized(companyId, "/")
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", idempotencyKey)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest.Builder authorized(UUID companyId, String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + accessTokens.get(companyId));
+    }
+
+    private void send(String endpoint, HttpRequest request, long scheduled, int expectedStatus, Consumer<String> onExpected) {
+        outstanding.incrementAndGet();
+        http.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+            try {
+                if (failure != null) {
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                    stats.get(endpoint).record(scheduled, cause.getClass().getSimpleName(), true);
+                    return;
+                }
+
+                boolean expected = response.statusCode() == expectedStatus;
+                stats.get(endpoint).record(scheduled, String.valueOf(response.statusCode()), !expected);
+                if (expected && onExpected != null) onExpected.accept(response.body());
+            } catch (RuntimeException e) {
+                log.warn("method=send, message=Failed to handle response, endpoint={}, err={}", endpoint, e.getMessage());
+            } finally {
+                outstanding.decrementAndGet();
+            }
+        });
+    }
+
+    // Latency of a follow-up counts from when it was due, so a backed-up scheduler is not hidden either.
+    private void later(long delayMs, Consumer<Long> task) {
+        long scheduled = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        outstanding.incrementAndGet();
+        followUps.schedule(() -> {
+            try {
+                task.accept(scheduled);
+            } catch (RuntimeException e) {
+                log.warn("method=later, message=Follow-up request failed to start, err={}", e.getMessage());
+            } finally {
+                outstanding.decrementAndGet();
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static String group(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    @Override
+    public void close() {
+        followUps.shutdownNow();
+        httpExecutor.shutdownNow();
+    }
+}
@@ -2,8 +2,10 @@ package rmit.saintgiong.paymentservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class JmCompanyPaymentApplication {
 
 	public static void main(String[] args) {
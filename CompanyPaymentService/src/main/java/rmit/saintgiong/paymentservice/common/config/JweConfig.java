@@ -20,4 +20,7 @@ public class JweConfig {
 
     @Value("${jwe.refresh-token-ttl-seconds}")  // Default: 7 days
     private int refreshTokenTtlSeconds;
+
+    @Value("${jwe.token-cache-max-size:10000}")  // Decrypted access tokens kept in memory
+    private int tokenCacheMaxSize;
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package rmit.saintgiong.paymentservice.common.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Replaces the auto-configured DataSource with a primary/replica pair once a replica URL is set.
+ * Without {@code payment.datasource.replica.url} the service keeps the single Boot-managed pool.
+ */
+@Configuration
+@ConditionalOnExpression("!'${payment.datasource.replica.url:}'.isEmpty()")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig primaryHikariConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties("payment.datasource.replica.hikari")
+    public HikariConfig replicaHikariConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource primaryDataSource(
+            HikariConfig primaryHikariConfig,
+            MeterRegistry meterRegistry,
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password
+    ) {
+        return pool(primaryHikariConfig, meterRegistry, "payment-primary", url, username, password, false);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource replicaDataSource(
+            HikariConfig replicaHikariConfig,
+            MeterRegistry meterRegistry,
+            @Value("${payment.datasource.replica.url}") String url,
+            @Value("${payment.datasource.replica.username}") String username,
+            @Value("${payment.datasource.replica.password}") String password
+    ) {
+        return pool(replicaHikariConfig, meterRegistry, "payment-replica", url, username, password, true);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReadReplicaRoutingDataSource routingDataSource(
+            HikariDataSource primaryDataSource,
+            HikariDataSource replicaDataSource,
+            MeterRegistry meterRegistry,
+            @Value("${payment.datasource.replica.maxLagMs:5000}") long maxLagMs,
+            @Value("${payment.datasource.replica.healthCheckIntervalMs:2000}") long healthCheckIntervalMs
+    ) {
+        return new ReadReplicaRoutingDataSource(
+                primaryDataSource,
+                replicaDataSource,
+                meterRegistry,
+                Duration.ofMillis(maxLagMs),
+                Duration.ofMillis(healthCheckIntervalMs)
+        );
+    }
+
+    // JPA and JDBC see this bean. The lazy proxy defers fetching a physical connection until the
+    // first statement, by which point the transaction's read-only flag decides the route.
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private static HikariDataSource pool(
+            HikariConfig config,
+            MeterRegistry meterRegistry,
+            String poolName,
+            String url,
+            String username,
+            String password,
+            boolean readOnly
+    ) {
+        config.setPoolName(poolName);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setReadOnly(readOnly);
+        // Per-pool hikaricp.connections.* metrics, tagged with the pool name.
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
+    }
+}
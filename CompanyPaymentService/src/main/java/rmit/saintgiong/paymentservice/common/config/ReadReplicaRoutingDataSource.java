@@ -0,0 +1,137 @@
+package rmit.saintgiong.paymentservice.common.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends connections for read-only transactions to the replica pool and everything else to the
+ * primary. A background probe tracks whether the replica is reachable and how far it lags; while
+ * it is down or behind by more than {@code maxLag}, read-only work falls back to the primary.
+ * Must sit behind a LazyConnectionDataSourceProxy so the route is chosen after the transaction's
+ * read-only flag has been set.
+ */
+@Slf4j
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    // Zero when the replica has replayed everything it received; otherwise the age of the last replayed commit.
+    private static final String LAG_QUERY = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() THEN 0
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   END
+            """;
+
+    private final DataSource replica;
+
+    private final Duration maxLag;
+
+    private final ScheduledExecutorService healthChecker;
+
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter fallbackConnections;
+
+    private final AtomicLong replicaLagMs = new AtomicLong(-1);
+
+    private volatile boolean replicaHealthy;
+
+    public ReadReplicaRoutingDataSource(
+            DataSource primary,
+            DataSource replica,
+            MeterRegistry meterRegistry,
+            Duration maxLag,
+            Duration healthCheckInterval
+    ) {
+        this.replica = replica;
+        this.maxLag = maxLag;
+
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+
+        this.primaryConnections = meterRegistry.counter("payment.datasource.connections", "pool", PRIMARY, "reason", "read-write");
+        this.replicaConnections = meterRegistry.counter("payment.datasource.connections", "pool", REPLICA, "reason", "read-only");
+        this.fallbackConnections = meterRegistry.counter("payment.datasource.connections", "pool", PRIMARY, "reason", "replica-unavailable");
+        Gauge.builder("payment.datasource.replica.healthy", this, ds -> ds.replicaHealthy ? 1 : 0)
+                .description("1 while read-only transactions are routed to the replica")
+                .register(meterRegistry);
+        Gauge.builder("payment.datasource.replica.lag", replicaLagMs, AtomicLong::get)
+                .description("Replication lag observed by the last health check, -1 if unreachable")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkReplica();
+        healthChecker.scheduleWithFixedDelay(
+                this::checkReplica,
+                healthCheckInterval.toMillis(),
+                healthCheckInterval.toMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryConnections.increment();
+            return PRIMARY;
+        }
+        if (!replicaHealthy) {
+            fallbackConnections.increment();
+            return PRIMARY;
+        }
+        replicaConnections.increment();
+        return REPLICA;
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+    }
+
+    private void checkReplica() {
+        boolean healthy;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+            rs.next();
+            long lagMs = (long) rs.getDouble(1);
+            replicaLagMs.set(lagMs);
+            healthy = lagMs <= maxLag.toMillis();
+        } catch (SQLException | RuntimeException e) {
+            replicaLagMs.set(-1);
+            healthy = false;
+            if (replicaHealthy) {
+                log.warn("method=checkReplica, message=Replica health check failed, err={}", e.getMessage());
+            }
+        }
+
+        if (healthy != replicaHealthy) {
+            log.warn("method=checkReplica, message=Replica routing changed, healthy={}, lagMs={}", healthy, replicaLagMs.get());
+        }
+        replicaHealthy = healthy;
+    }
+}
@@ -1,14 +1,24 @@
 package rmit.saintgiong.paymentservice.common.kafka;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.requestreply.KafkaReplyTimeoutException;
 import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
 import org.springframework.kafka.requestreply.RequestReplyFuture;
 import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 import rmit.saintgiong.paymentapi.external.services.kafka.EventProducerInterface;
 
@@ -21,19 +31,71 @@ public class EventProducerService implements EventProducerInterface {
 
     private final ReplyingKafkaTemplate<String, Object, Object> replyingKafkaTemplate;
 
+    private final MeterRegistry meterRegistry;
+
+    private final String replyTopic;
+
+    private final Duration defaultReplyTimeout;
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+
     public EventProducerService(
             ReplyingKafkaTemplate<String, Object, Object> replyingKafkaTemplate,
-            KafkaTemplate<String, Object> kafkaTemplate
+            KafkaTemplate<String, Object> kafkaTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${kafka.reply.topic}") String replyTopic,
+            @Value("${kafka.reply.defaultTimeoutMs:10000}") long defaultReplyTimeoutMs
     ) {
         this.replyingKafkaTemplate = replyingKafkaTemplate;
         this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.replyTopic = replyTopic;
+        this.defaultReplyTimeout = Duration.ofMillis(defaultReplyTimeoutMs);
+
+        Gauge.builder("kafka.request.reply.inflight", inFlightRequests, AtomicInteger::get)
+                .description("Kafka request-reply calls waiting for a reply")
+                .register(meterRegistry);
     }
 
     @Override
     public void send(String requestTopic, Object requestData) {
         log.debug("Sending Avro record to topic: {}", requestTopic);
-        kafkaTemplate.send(requestTopic, requestData);
-        log.debug("Avro record sent successfully to topic: {}", requestTopic);
+
+        observedSend(requestTopic, null, requestData).whenComplete((result, error) -> {
+            if (error != null) {
+                log.error("Failed to send Avro record to topic: {}", requestTopic, error);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(String requestTopic, String key, Object requestData) {
+        log.debug("Sending Avro record asynchronously to topic: {}, key: {}", requestTopic, key);
+        return observedSend(requestTopic, key, requestData)
+                .thenAccept(result -> log.debug("Avro record acknowledged by topic: {}, partition: {}, offset: {}",
+                        requestTopic,
+                        result.getRecordMetadata().partition(),
+                        result.getRecordMetadata().offset()));
+    }
+
+    // Records latency and outcome per topic for every send, including synchronous failures.
+    private CompletableFuture<SendResult<String, Object>> observedSend(String requestTopic, String key, Object requestData) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        CompletableFuture<SendResult<String, Object>> future;
+        try {
+            future = kafkaTemplate.send(requestTopic, key, requestData);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
+        return future.whenComplete((result, error) ->
+                sample.stop(Timer.builder("kafka.producer.send")
+                        .description("Kafka producer send latency until broker acknowledgement")
+                        .tag("topic", requestTopic)
+                        .tag("outcome", error == null ? "success" : "failure")
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)));
     }
 
     @Override
@@ -43,19 +105,65 @@ public class EventProducerService implements EventProducerInterface {
             Object requestData,
             Class<T> responseType
     ) throws ExecutionException, InterruptedException {
-        log.debug("Sending Avro record to topic: {} with reply topic: {}", requestTopic, responseTopic);
-        
+        if (responseTopic != null && !responseTopic.equals(replyTopic)) {
+            log.debug("Ignoring reply topic: {}, replies are read from instance topic: {}", responseTopic, replyTopic);
+        }
+
+        return sendAndReceiveAsync(requestTopic, requestData, responseType, defaultReplyTimeout).get();
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAndReceiveAsync(
+            String requestTopic,
+            Object requestData,
+            Class<T> responseType,
+            Duration timeout
+    ) {
+        log.debug("Sending Avro record to topic: {} with reply topic: {}", requestTopic, replyTopic);
+
         ProducerRecord<String, Object> request = new ProducerRecord<>(requestTopic, requestData);
         request.headers().add(
                 KafkaHeaders.REPLY_TOPIC,
-                responseTopic.getBytes()
+                replyTopic.getBytes(StandardCharsets.UTF_8)
         );
 
-        RequestReplyFuture<String, Object, Object> futureReply = replyingKafkaTemplate.sendAndReceive(request);
-        ConsumerRecord<String, Object> response = futureReply.get();
-        
-        log.debug("Received Avro response from topic: {}", responseTopic);
+        inFlightRequests.incrementAndGet();
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        // ReplyingKafkaTemplate adds the correlation id header and matches the reply to this future.
+        RequestReplyFuture<String, Object, Object> futureReply;
+        try {
+            futureReply = replyingKafkaTemplate.sendAndReceive(request, timeout != null ? timeout : defaultReplyTimeout);
+        } catch (RuntimeException e) {
+            inFlightRequests.decrementAndGet();
+            sample.stop(replyLatencyTimer(requestTopic, "error"));
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return futureReply
+                .whenComplete((response, error) -> {
+                    inFlightRequests.decrementAndGet();
+                    sample.stop(replyLatencyTimer(requestTopic, outcomeOf(error)));
+                    if (error == null) {
+                        log.debug("Received Avro response from topic: {}", replyTopic);
+                    }
+                })
+                .thenApply(response -> responseType.cast(response.value()));
+    }
+
+    private Timer replyLatencyTimer(String requestTopic, String outcome) {
+        return Timer.builder("kafka.request.reply.latency")
+                .description("Time from sending a Kafka request to receiving its reply")
+                .tag("topic", requestTopic)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private String outcomeOf(Throwable error) {
+        if (error == null) return "success";
 
-        return responseType.cast(response.value());
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof KafkaReplyTimeoutException ? "timeout" : "error";
     }
 }
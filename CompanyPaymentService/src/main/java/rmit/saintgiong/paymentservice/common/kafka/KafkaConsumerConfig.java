@@ -1,9 +1,13 @@
 package rmit.saintgiong.paymentservice.common.kafka;
 
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
@@ -13,6 +17,16 @@ import org.springframework.kafka.listener.ContainerProperties;
 @EnableKafka
 public class KafkaConsumerConfig {
 
+    // One reply topic per service instance, so replies are never consumed by another pod.
+    @Value("${kafka.reply.topic}")
+    private String replyTopic;
+
+    @Value("${kafka.reply.replicas:1}")
+    private int replyTopicReplicas;
+
+    @Value("${kafka.reply.retentionMs:3600000}")
+    private String replyTopicRetentionMs;
+
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory(
             KafkaTemplate<String, Object> kafkaTemplate,
@@ -24,14 +38,22 @@ public class KafkaConsumerConfig {
         return factory;
     }
 
+    @Bean
+    public NewTopic replyTopic() {
+        return TopicBuilder.name(replyTopic)
+                .partitions(1)
+                .replicas(replyTopicReplicas)
+                .config(TopicConfig.RETENTION_MS_CONFIG, replyTopicRetentionMs)
+                .build();
+    }
+
     @Bean
     public ConcurrentMessageListenerContainer<String, Object> replyListenerContainer(
             ConsumerFactory<String, Object> consumerFactory
     ) {
         // Topic for request and reply communication
-        ContainerProperties containerProperties = new ContainerProperties(
-                "EMPTY_TOPICS"
-        );
+        ContainerProperties containerProperties = new ContainerProperties(replyTopic);
+        containerProperties.setGroupId(replyTopic);
 
         return new ConcurrentMessageListenerContainer<>(consumerFactory, containerProperties);
     }
@@ -1,5 +1,7 @@
 package rmit.saintgiong.paymentservice.common.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,29 +9,68 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jspecify.annotations.NonNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.function.SingletonSupplier;
 import org.springframework.web.filter.OncePerRequestFilter;
 import rmit.saintgiong.paymentservice.common.utils.JweTokenService;
 import rmit.saintgiong.shared.token.TokenClaimsDto;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Builds the SecurityContext from the JWE bearer token, lazily. Public routes are not filtered at
+ * all; elsewhere the tokens are only decrypted the first time something asks for the
+ * Authentication, and the refresh token only on routes that need the _REFRESH role.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class JweAuthRequestFilter extends OncePerRequestFilter {
 
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    // Every value the route tag can take, mirroring the authenticated controller mappings. Specific
+    // paths come before the /{id} templates that would also match them. Anything else, including
+    // scanners probing random paths, is tagged "other" so the meter count stays fixed.
+    private static final List<String> ROUTES = List.of(
+            "POST /",
+            "GET /",
+            "PATCH /",
+            "GET /export",
+            "GET /{id}/events",
+            "GET /{id}",
+            "PATCH /{id}",
+            "DELETE /{id}"
+    );
+
+    private static final String OTHER_ROUTE = "other";
+
     private final JweTokenService jweTokenService;
 
+    private final MeterRegistry meterRegistry;
+
+    // Routes whose authorization needs ROLE_<role>_REFRESH; none of the payment endpoints do today.
+    @Value("${security.auth.refreshTokenPaths:}")
+    private String[] refreshTokenPaths;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return matchesAny(pathOf(request), SecurityConfig.PUBLIC_PATHS);
+    }
+
     @Override
     protected void doFilterInternal(
             HttpServletRequest request,
@@ -37,12 +78,23 @@ public class JweAuthRequestFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
 
+        String accessHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        String refreshHeader = matchesAny(pathOf(request), refreshTokenPaths) ? request.getHeader("X-Refresh-Token") : null;
+        String route = routeOf(request);
+        WebAuthenticationDetails details = new WebAuthenticationDetailsSource().buildDetails(request);
+
+        SecurityContextHolder.getContextHolderStrategy().setDeferredContext(SingletonSupplier.of(
+                () -> buildContext(accessHeader, refreshHeader, details, route)));
+
+        filterChain.doFilter(request, response);
+    }
+
+    // Runs at most once per request, the first time the Authentication is read (normally by the AuthorizationFilter).
+    private SecurityContext buildContext(String accessHeader, String refreshHeader, WebAuthenticationDetails details, String route) {
+        Timer.Sample sample = Timer.start(meterRegistry);
         SecurityContext context = SecurityContextHolder.createEmptyContext();
         List<GrantedAuthority> authorityList = new ArrayList<>();
 
-        String accessHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
-        String refreshHeader = request.getHeader("X-Refresh-Token");
-
         String currentUserId = "";
         if (accessHeader != null && accessHeader.startsWith("Bearer ")) {
             String accessToken = accessHeader.substring(7);
@@ -56,11 +108,16 @@ public class JweAuthRequestFilter extends OncePerRequestFilter {
         }
 
         UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(currentUserId, null, authorityList);
-        auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        auth.setDetails(details);
         context.setAuthentication(auth);
-        SecurityContextHolder.setContext(context);
 
-        filterChain.doFilter(request, response);
+        sample.stop(Timer.builder("security.auth.cost")
+                .description("Time spent decrypting and validating tokens per route")
+                .tag("route", route)
+                .tag("outcome", authorityList.isEmpty() ? "unauthenticated" : "authenticated")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        return context;
     }
 
     private String extractAndSetRoleForSecurityContext(String tokenValue, List<GrantedAuthority> authorityList, boolean isRefresh) {
@@ -69,7 +126,7 @@ public class JweAuthRequestFilter extends OncePerRequestFilter {
 
             TokenClaimsDto tokenClaimsDto = jweTokenService.validateAccessToken(tokenValue);
 
-            if (tokenClaimsDto != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            if (tokenClaimsDto != null) {
                 SimpleGrantedAuthority auth = new SimpleGrantedAuthority("ROLE_" + tokenClaimsDto.getRole().name() + (isRefresh ? "_REFRESH" : ""));
                 authorityList.add(auth);
 
@@ -82,6 +139,26 @@ public class JweAuthRequestFilter extends OncePerRequestFilter {
         return null;
     }
 
+    private static String routeOf(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = pathOf(request);
+        for (String route : ROUTES) {
+            int space = route.indexOf(' ');
+            if (route.substring(0, space).equals(method) && PATH_MATCHER.match(route.substring(space + 1), path)) {
+                return route;
+            }
+        }
+        return OTHER_ROUTE;
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static boolean matchesAny(String path, String[] patterns) {
+        return patterns != null && Arrays.stream(patterns).anyMatch(pattern -> PATH_MATCHER.match(pattern, path));
+    }
+
     @Override
     protected boolean shouldNotFilterAsyncDispatch() {
         return false;
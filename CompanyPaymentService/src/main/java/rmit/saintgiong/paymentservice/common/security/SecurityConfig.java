@@ -14,6 +14,18 @@ import rmit.saintgiong.shared.type.Role;
 @EnableWebSecurity
 public class SecurityConfig {
 
+        // Also skipped entirely by JweAuthRequestFilter, so keep the two in sync through this list.
+        public static final String[] PUBLIC_PATHS = {
+                        "/actuator/**",
+                        "/swagger-ui.html",
+                        "/swagger-ui/**",
+                        "/api-docs/**",
+                        "/api-docs.yaml",
+                        "/v3/api-docs/**",
+                        "/favicon.ico",
+                        "/stripe/**"
+        };
+
         private final JweAuthRequestFilter jweAuthRequestFilter;
 
         public SecurityConfig(JweAuthRequestFilter jweAuthRequestFilter) {
@@ -27,19 +39,9 @@ public class SecurityConfig {
                                 // CORS is handled by the Gateway - disable here to avoid duplicate headers
                                 .cors(AbstractHttpConfigurer::disable)
                                 .authorizeHttpRequests(auth -> auth
-                                                // PUBLIC ENDPOINT FOR ACTUATOR and SWAGGER
-                                                .requestMatchers(
-                                                                "/actuator/**",
-                                                                "/swagger-ui.html",
-                                                                "/swagger-ui/**",
-                                                                "/api-docs/**",
-                                                                "/api-docs.yaml",
-                                                                "/v3/api-docs/**",
-                                                                "/favicon.ico")
+                                                // PUBLIC ENDPOINT FOR ACTUATOR, SWAGGER and STRIPE
+                                                .requestMatchers(PUBLIC_PATHS)
                                                 .permitAll()
-                                                .requestMatchers(
-                                                        "/stripe/**"
-                                                ).permitAll()
                                                 .anyRequest().hasRole(Role.COMPANY.name()))
                                 .sessionManagement(
                                                 session -> session
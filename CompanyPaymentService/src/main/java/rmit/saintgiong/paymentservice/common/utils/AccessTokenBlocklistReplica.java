@@ -0,0 +1,212 @@
+package rmit.saintgiong.paymentservice.common.utils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process copy of the {@code blocklist:access_token:*} keys in Redis. A Bloom filter answers
+ * the common "not blocked" case without touching the exact set; the exact set confirms the rest.
+ * Keyspace notifications keep it current between periodic full SCAN resyncs. Callers must check
+ * {@link #isFresh()} first and go to Redis directly when the copy cannot be trusted.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AccessTokenBlocklistReplica implements MessageListener {
+
+    static final String KEY_PREFIX = "blocklist:access_token:";
+
+    private record Snapshot(BloomFilter bloom, Set<String> tokenIds) {
+
+        void add(String tokenId) {
+            bloom.add(tokenId);
+            tokenIds.add(tokenId);
+        }
+    }
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${security.blocklist.replica.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.blocklist.replica.maxStalenessMs:90000}")
+    private long maxStalenessMs;
+
+    @Value("${security.blocklist.replica.expectedEntries:100000}")
+    private long expectedEntries;
+
+    @Value("${security.blocklist.replica.falsePositiveRate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${security.blocklist.replica.scanCount:1000}")
+    private long scanCount;
+
+    // For managed Redis that blocks CONFIG but has notify-keyspace-events set by the operator.
+    @Value("${security.blocklist.replica.assumeNotificationsWhenUnknown:false}")
+    private boolean assumeNotificationsWhenUnknown;
+
+    @Value("${spring.data.redis.database:0}")
+    private int database;
+
+    private volatile Snapshot snapshot;
+
+    // Non-null while a resync is scanning, so notifications that race the scan are not lost on swap.
+    private volatile Set<String> addedDuringResync;
+
+    private volatile long lastSyncMillis;
+
+    // Cleared when Redis reports keyspace notifications are off; the replica would silently miss revocations.
+    private volatile boolean notificationsAvailable = true;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+
+        listenerContainer.addMessageListener(this, new PatternTopic("__keyspace@" + database + "__:" + KEY_PREFIX + "*"));
+
+        Gauge.builder("security.blocklist.replica.size", this, replica -> {
+                    Snapshot current = replica.snapshot;
+                    return current == null ? 0 : current.tokenIds().size();
+                })
+                .description("Blocked access-token ids held in the local replica")
+                .register(meterRegistry);
+        Gauge.builder("security.blocklist.replica.age", this,
+                        replica -> replica.lastSyncMillis == 0 ? -1 : (System.currentTimeMillis() - replica.lastSyncMillis) / 1000.0)
+                .description("Seconds since the last full resync of the blocklist replica")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isFresh() {
+        return enabled
+                && notificationsAvailable
+                && snapshot != null
+                && System.currentTimeMillis() - lastSyncMillis <= maxStalenessMs;
+    }
+
+    public boolean isBlocked(String tokenId) {
+        Snapshot current = snapshot;
+        if (!current.bloom().mightContain(tokenId)) {
+            meterRegistry.counter("security.blocklist.lookup", "source", "bloom").increment();
+            return false;
+        }
+        meterRegistry.counter("security.blocklist.lookup", "source", "replica").increment();
+        return current.tokenIds().contains(tokenId);
+    }
+
+    @Scheduled(fixedDelayString = "${security.blocklist.replica.resyncIntervalMs:30000}")
+    public void resync() {
+        if (!enabled) return;
+
+        Set<String> added = ConcurrentHashMap.newKeySet();
+        addedDuringResync = added;
+        try {
+            notificationsAvailable = keyspaceNotificationsEnabled();
+            Set<String> scanned = scanTokenIds();
+
+            Set<String> tokenIds = ConcurrentHashMap.newKeySet(scanned.size());
+            tokenIds.addAll(scanned);
+            BloomFilter bloom = new BloomFilter(Math.max(expectedEntries, scanned.size() * 2L), falsePositiveRate);
+            tokenIds.forEach(bloom::add);
+
+            Snapshot next = new Snapshot(bloom, tokenIds);
+            snapshot = next;
+            added.forEach(next::add);
+            lastSyncMillis = System.currentTimeMillis();
+
+            log.debug("method=resync, message=Blocklist replica resynced, size={}", tokenIds.size());
+        } catch (RuntimeException e) {
+            // Leave the previous snapshot in place; once it ages past maxStalenessMs lookups go to Redis.
+            log.warn("method=resync, message=Blocklist replica resync failed, err={}", e.getMessage());
+        } finally {
+            addedDuringResync = null;
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        int prefixAt = channel.indexOf(KEY_PREFIX);
+        if (prefixAt < 0) return;
+
+        String tokenId = channel.substring(prefixAt + KEY_PREFIX.length());
+        String event = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        switch (event) {
+            case "set", "rename_to", "restore" -> add(tokenId);
+            case "del", "expired", "evicted", "rename_from" -> remove(tokenId);
+            default -> {
+                // expire, persist and other metadata changes do not affect membership
+            }
+        }
+    }
+
+    private void add(String tokenId) {
+        Snapshot current = snapshot;
+        if (current != null) current.add(tokenId);
+
+        Set<String> pending = addedDuringResync;
+        if (pending != null) pending.add(tokenId);
+    }
+
+    // The Bloom filter keeps the bit until the next resync; that only costs an extra exact-set lookup.
+    private void remove(String tokenId) {
+        Snapshot current = snapshot;
+        if (current != null) current.tokenIds().remove(tokenId);
+    }
+
+    private Set<String> scanTokenIds() {
+        Set<String> tokenIds = new HashSet<>();
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(scanCount).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            cursor.forEachRemaining(key -> tokenIds.add(key.substring(KEY_PREFIX.length())));
+        }
+        return tokenIds;
+    }
+
+    // Keyspace events for generic (g), string ($) and expired (x) keys, or all of them (A), must be on.
+    private boolean keyspaceNotificationsEnabled() {
+        try {
+            Properties config = redisTemplate.execute((RedisCallback<Properties>) connection ->
+                    connection.serverCommands().getConfig("notify-keyspace-events"));
+            String flags = config == null ? "" : config.getProperty("notify-keyspace-events", "");
+            boolean available = flags.contains("K")
+                    && (flags.contains("A") || (flags.contains("g") && flags.contains("$") && flags.contains("x")));
+            if (!available && notificationsAvailable) {
+                log.warn("method=keyspaceNotificationsEnabled, message=Redis keyspace notifications are off, blocklist checks go to Redis, flags={}", flags);
+            }
+            return available;
+        } catch (RuntimeException e) {
+            // CONFIG is often disabled on managed Redis. Without proof that notifications are on, a
+            // revocation could go unseen until the next resync, so checks go to Redis unless told otherwise.
+            if (notificationsAvailable && !assumeNotificationsWhenUnknown) {
+                log.warn("method=keyspaceNotificationsEnabled, message=Cannot read notify-keyspace-events, blocklist checks go to Redis, err={}", e.getMessage());
+            }
+            return assumeNotificationsWhenUnknown;
+        }
+    }
+}
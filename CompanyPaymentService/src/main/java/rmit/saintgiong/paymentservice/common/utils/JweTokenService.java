@@ -1,7 +1,12 @@
 package rmit.saintgiong.paymentservice.common.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.nimbusds.jose.*;
 import com.nimbusds.jose.crypto.RSADecrypter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,14 +18,19 @@ import rmit.saintgiong.shared.token.TokenClaimsDto;
 import rmit.saintgiong.shared.type.Role;
 import rmit.saintgiong.shared.type.TokenType;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 
 @Service
@@ -31,14 +41,47 @@ public class JweTokenService {
     private final JweConfig jweConfig;
     private final RsaKeyLoader keyLoader;
     private final TokenStorageService tokenStorageService;
+    private final MeterRegistry meterRegistry;
 
     private RSAPublicKey publicKey;
     private RSAPrivateKey privateKey;
+    private RSADecrypter decrypter;
+
+    // Claims of already-decrypted access tokens, keyed by SHA-256 of the token and kept until its exp.
+    private Cache<String, TokenClaimsDto> decryptedAccessTokens;
 
     @PostConstruct
     public void init() throws Exception {
         this.publicKey = keyLoader.loadPublicKey();
         this.privateKey = keyLoader.loadPrivateKey();
+        // RSADecrypter is thread-safe; one instance avoids re-deriving the key on every request.
+        this.decrypter = new RSADecrypter(privateKey);
+
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(jweConfig.getAccessTokenTtlSeconds());
+        this.decryptedAccessTokens = Caffeine.newBuilder()
+                .maximumSize(jweConfig.getTokenCacheMaxSize())
+                .expireAfter(new Expiry<String, TokenClaimsDto>() {
+                    @Override
+                    public long expireAfterCreate(String key, TokenClaimsDto claims, long currentTime) {
+                        if (claims.getExp() <= 0) return maxTtlNanos;
+                        long untilExp = TimeUnit.SECONDS.toNanos(claims.getExp())
+                                - TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+                        return Math.max(0, Math.min(untilExp, maxTtlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, TokenClaimsDto claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, TokenClaimsDto claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, decryptedAccessTokens, "jweAccessToken");
 
         log.info("JWE Token Service initialized with issuer: {}", jweConfig.getIssuer());
         log.info("Access token TTL: {} seconds, Refresh token TTL: {} seconds",
@@ -48,14 +91,17 @@ public class JweTokenService {
     /**
      * Validates an access token and returns the claims if valid.
      * Checks if the token is in the blocklist (revoked).
+     * Decryption runs once per token; repeat requests reuse the cached claims, but the expiry
+     * and blocklist checks still run on every call.
      *
      * @param accessToken The access token to validate
      * @return TokenClaimsDto containing the token claims
      */
     public TokenClaimsDto validateAccessToken(String accessToken) {
-        TokenClaimsDto tokenClaimsDto = getTokenClaimsDtoDecryptedFromTokenString(accessToken);
-        if (tokenClaimsDto.getType() != TokenType.ACCESS) {
-            throw new InvalidTokenException("Invalid token type. Expected TokenType: ACCESS");
+        TokenClaimsDto tokenClaimsDto = decryptedAccessTokens.get(sha256(accessToken), key -> decryptAccessToken(accessToken));
+
+        if (tokenClaimsDto.getExp() > 0 && Instant.now().getEpochSecond() > tokenClaimsDto.getExp()) {
+            throw new TokenExpiredException("Token has expired.");
         }
 
         String accessTokenId = tokenClaimsDto.getJti();
@@ -66,6 +112,24 @@ public class JweTokenService {
         return tokenClaimsDto;
     }
 
+    // Failures propagate without being cached, so an invalid token is rejected again on every call.
+    private TokenClaimsDto decryptAccessToken(String accessToken) {
+        TokenClaimsDto tokenClaimsDto = getTokenClaimsDtoDecryptedFromTokenString(accessToken);
+        if (tokenClaimsDto.getType() != TokenType.ACCESS) {
+            throw new InvalidTokenException("Invalid token type. Expected TokenType: ACCESS");
+        }
+        return tokenClaimsDto;
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     // Decrypts and validates a JWE token.
     public TokenClaimsDto getTokenClaimsDtoDecryptedFromTokenString(String jweString) {
         try {
@@ -98,7 +162,7 @@ public class JweTokenService {
     private JWEObject validateAndConvertTokenStringToJweObject(String jweString, TokenType type)
             throws JOSEException, ParseException {
         JWEObject jweObject = JWEObject.parse(jweString);
-        jweObject.decrypt(new RSADecrypter(privateKey));
+        jweObject.decrypt(decrypter);
         Map<String, Object> tokenPayload = jweObject.getPayload().toJSONObject();
 
         Number exp = (Number) jweObject.getHeader().getCustomParam("exp");
@@ -1,5 +1,6 @@
 package rmit.saintgiong.paymentservice.common.utils;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -9,6 +10,7 @@ import org.springframework.stereotype.Service;
 // Uses blocklist approach for access tokens (store revoked tokens).
 // Uses whitelist approach for refresh tokens (store valid tokens).
 // Stores activation tokens for account activation.
+// Blocklist lookups are answered from a local replica while it is fresh, otherwise from Redis.
 @Service
 @Slf4j
 @RequiredArgsConstructor
@@ -16,9 +18,18 @@ public class TokenStorageService {
 
     private final RedisTemplate<String, String> redisTemplate;
 
-    private static final String BLOCKLIST_ACCESS_TOKEN_PREFIX = "blocklist:access_token:";
+    private final AccessTokenBlocklistReplica blocklistReplica;
+
+    private final MeterRegistry meterRegistry;
+
+    private static final String BLOCKLIST_ACCESS_TOKEN_PREFIX = AccessTokenBlocklistReplica.KEY_PREFIX;
 
     public boolean isAccessTokenBlocked(String tokenId) {
+        if (blocklistReplica.isFresh()) {
+            return blocklistReplica.isBlocked(tokenId);
+        }
+
+        meterRegistry.counter("security.blocklist.lookup", "source", "redis").increment();
         String key = BLOCKLIST_ACCESS_TOKEN_PREFIX + tokenId;
         Boolean exists = redisTemplate.hasKey(key);
         return Boolean.TRUE.equals(exists);
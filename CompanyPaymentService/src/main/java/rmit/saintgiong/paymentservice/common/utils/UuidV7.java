@@ -0,0 +1,47 @@
+package rmit.saintgiong.paymentservice.common.utils;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Time-ordered UUID version 7 (RFC 9562): a 48-bit Unix millisecond timestamp, then a 12-bit
+ * per-millisecond counter, then 62 random bits. New keys land at the right edge of the primary
+ * key B-tree instead of at random pages, and ids from one instance are strictly increasing.
+ */
+public final class UuidV7 {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final int MAX_SEQUENCE = 0xFFF;
+
+    private static long lastMillis = -1L;
+
+    private static int sequence;
+
+    private UuidV7() {
+    }
+
+    public static UUID generate() {
+        long millis;
+        int seq;
+
+        synchronized (UuidV7.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                // Random start in the lower half leaves room to count up within the millisecond.
+                sequence = RANDOM.nextInt(MAX_SEQUENCE >> 1);
+            } else if (++sequence > MAX_SEQUENCE) {
+                // Counter exhausted or clock moved backwards: borrow the next millisecond to stay monotonic.
+                lastMillis++;
+                sequence = 0;
+            }
+            millis = lastMillis;
+            seq = sequence;
+        }
+
+        long mostSigBits = (millis << 16) | 0x7000L | seq;
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
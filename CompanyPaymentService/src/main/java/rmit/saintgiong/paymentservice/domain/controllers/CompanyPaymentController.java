@@ -1,24 +1,41 @@
 package rmit.saintgiong.paymentservice.domain.controllers;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import rmit.saintgiong.paymentapi.internal.common.dto.request.CreateCompanyPaymentRequestDto;
+import rmit.saintgiong.paymentapi.internal.common.dto.request.PatchCompanyPaymentRequestDto;
+import rmit.saintgiong.paymentapi.internal.common.dto.request.QueryCompanyPaymentFilterDto;
+import rmit.saintgiong.paymentapi.internal.common.dto.response.CompanyPaymentPageResponseDto;
 import rmit.saintgiong.paymentapi.internal.common.dto.response.CreateCompanyPaymentResponseDto;
 import rmit.saintgiong.paymentapi.internal.common.dto.response.QueryCompanyPaymentResponseDto;
+import rmit.saintgiong.paymentapi.internal.common.type.ExportFormat;
+import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
 import rmit.saintgiong.paymentapi.internal.services.CreateCompanyPaymentInterface;
 import rmit.saintgiong.paymentapi.internal.services.QueryCompanyPaymentInterface;
 import rmit.saintgiong.paymentapi.internal.services.UpdateCompanyPaymentInterface;
 import rmit.saintgiong.paymentapi.internal.services.DeleteCompanyPaymentInterface;
+import rmit.saintgiong.paymentapi.internal.services.ExportCompanyPaymentInterface;
+import rmit.saintgiong.paymentservice.common.exception.domain.DomainException;
+import rmit.saintgiong.paymentservice.domain.services.internal.PaymentStatusEventBroker;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
+import static rmit.saintgiong.paymentapi.internal.common.type.DomainCode.INVALID_REQUEST_PARAMETER;
+
 @RestController
 @RequestMapping
 @RequiredArgsConstructor
@@ -30,11 +47,16 @@ public class CompanyPaymentController {
     private final QueryCompanyPaymentInterface queryService;
     private final UpdateCompanyPaymentInterface updateService;
     private final DeleteCompanyPaymentInterface deleteService;
+    private final ExportCompanyPaymentInterface exportService;
+    private final PaymentStatusEventBroker statusEvents;
 
     @PostMapping("/")
-    public ResponseEntity<CreateCompanyPaymentResponseDto> createTransaction(@Valid @RequestBody CreateCompanyPaymentRequestDto req) {
+    public ResponseEntity<CreateCompanyPaymentResponseDto> createTransaction(
+            @Valid @RequestBody CreateCompanyPaymentRequestDto req,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
         String requestId = UUID.randomUUID().toString();
-        CreateCompanyPaymentResponseDto response = createService.createCompanyPayment(req);
+        CreateCompanyPaymentResponseDto response = createService.createCompanyPayment(req, idempotencyKey);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
@@ -43,9 +65,71 @@ public class CompanyPaymentController {
         return ResponseEntity.ok(queryService.getCompanyPayment(id));
     }
 
+    // Streams the current status, then every transition, until the payment settles.
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String id) {
+        UUID paymentId;
+        try {
+            paymentId = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new DomainException(INVALID_REQUEST_PARAMETER, "id");
+        }
+        SseEmitter emitter = statusEvents.subscribe(paymentId);
+        try {
+            QueryCompanyPaymentResponseDto current = queryService.getCompanyPayment(id);
+            statusEvents.send(paymentId, emitter, current.getStatus());
+        } catch (RuntimeException e) {
+            statusEvents.unsubscribe(paymentId, emitter);
+            throw e;
+        }
+        return emitter;
+    }
+
     @GetMapping("/")
-    public ResponseEntity<List<QueryCompanyPaymentResponseDto>> list() {
-        return ResponseEntity.ok(queryService.listCompanyPayments());
+    public ResponseEntity<CompanyPaymentPageResponseDto> list(
+            @RequestParam(required = false) String companyId,
+            @RequestParam(required = false) TransactionStatus status,
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        QueryCompanyPaymentFilterDto filter = QueryCompanyPaymentFilterDto.builder()
+                .companyId(companyId)
+                .status(status)
+                .currency(currency)
+                .from(from)
+                .to(to)
+                .build();
+        return ResponseEntity.ok(queryService.listCompanyPayments(filter, cursor, limit));
+    }
+
+    @GetMapping("/export")
+    public void export(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(required = false) String companyId,
+            @RequestParam(required = false) TransactionStatus status,
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            HttpServletResponse response
+    ) throws IOException {
+        QueryCompanyPaymentFilterDto filter = QueryCompanyPaymentFilterDto.builder()
+                .companyId(companyId)
+                .status(status)
+                .currency(currency)
+                .from(from)
+                .to(to)
+                .build();
+
+        boolean csv = format == ExportFormat.CSV;
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"transactions." + (csv ? "csv" : "ndjson") + "\"");
+
+        exportService.exportCompanyPayments(filter, format, response.getOutputStream());
     }
 
     @PatchMapping("/{id}")
@@ -53,6 +137,11 @@ public class CompanyPaymentController {
         return ResponseEntity.ok(updateService.updateCompanyPayment(id, req));
     }
 
+    @PatchMapping("/")
+    public ResponseEntity<List<QueryCompanyPaymentResponseDto>> bulkUpdate(@Valid @RequestBody List<PatchCompanyPaymentRequestDto> changes) {
+        return ResponseEntity.ok(updateService.updateCompanyPayments(changes));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id) {
         deleteService.deleteCompanyPayment(id);
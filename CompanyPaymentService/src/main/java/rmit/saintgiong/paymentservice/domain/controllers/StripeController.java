@@ -29,7 +29,7 @@ public class StripeController {
             externalStripeWebhookInterface.handleWebhook(payload, sigHeader);
             return ResponseEntity
                     .status(HttpStatus.OK)
-                    .body("Webhook processed successfully");
+                    .body("Webhook received");
 
         } catch (IllegalArgumentException e) {
             log.warn("method=handleWebhook, message=Webhook validation failed: {}", e.getMessage());
@@ -0,0 +1,41 @@
+package rmit.saintgiong.paymentservice.domain.models;
+
+import rmit.saintgiong.paymentservice.common.exception.domain.DomainException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+import static rmit.saintgiong.paymentapi.internal.common.type.DomainCode.INVALID_REQUEST_PARAMETER;
+
+/**
+ * Keyset position in the payment listing: the (purchasedAt, id) of the last row returned.
+ * Encoded as URL-safe base64 so clients treat it as opaque.
+ */
+public record CompanyPaymentCursor(LocalDateTime purchasedAt, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = purchasedAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CompanyPaymentCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) throw new IllegalArgumentException("missing separator");
+
+            return new CompanyPaymentCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new DomainException(INVALID_REQUEST_PARAMETER, "cursor");
+        }
+    }
+}
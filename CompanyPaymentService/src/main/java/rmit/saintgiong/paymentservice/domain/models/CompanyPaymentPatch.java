@@ -0,0 +1,20 @@
+package rmit.saintgiong.paymentservice.domain.models;
+
+import rmit.saintgiong.paymentapi.internal.common.type.PaymentMethod;
+
+import java.util.UUID;
+
+/**
+ * Partial change to one payment. Null fields keep their current value.
+ */
+public record CompanyPaymentPatch(
+        UUID id,
+        Double amount,
+        String currency,
+        PaymentMethod method
+) {
+
+    public boolean isEmpty() {
+        return amount == null && currency == null && method == null;
+    }
+}
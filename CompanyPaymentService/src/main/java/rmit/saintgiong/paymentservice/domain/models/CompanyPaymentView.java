@@ -0,0 +1,38 @@
+package rmit.saintgiong.paymentservice.domain.models;
+
+import rmit.saintgiong.paymentapi.internal.common.dto.response.QueryCompanyPaymentResponseDto;
+import rmit.saintgiong.paymentapi.internal.common.type.PaymentMethod;
+import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * Read-only projection of the columns the query endpoints return. Selected with a constructor
+ * expression, so rows never enter the persistence context (no snapshot, no dirty checking).
+ */
+public record CompanyPaymentView(
+        UUID id,
+        UUID companyId,
+        Double amount,
+        String currency,
+        TransactionStatus status,
+        PaymentMethod method,
+        String paymentTransactionId,
+        LocalDateTime purchasedAt
+) {
+
+    public QueryCompanyPaymentResponseDto toResponse() {
+        return new QueryCompanyPaymentResponseDto(
+                String.valueOf(id),
+                String.valueOf(companyId),
+                amount,
+                currency,
+                status,
+                method,
+                paymentTransactionId,
+                purchasedAt == null ? null : purchasedAt.atZone(ZoneId.systemDefault()).toInstant()
+        );
+    }
+}
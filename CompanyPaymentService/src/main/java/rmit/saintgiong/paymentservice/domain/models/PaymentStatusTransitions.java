@@ -0,0 +1,43 @@
+package rmit.saintgiong.paymentservice.domain.models;
+
+import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus.CANCELLED;
+import static rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus.FAILED;
+import static rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus.PENDING;
+import static rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus.SUCCESSFUL;
+
+/**
+ * Legal payment status transitions, expressed as the statuses a payment may be in before moving
+ * to a target. SUCCESSFUL is final; FAILED can still become SUCCESSFUL because Stripe lets the
+ * customer retry a failed PaymentIntent on the same checkout.
+ */
+public final class PaymentStatusTransitions {
+
+    private static final Map<TransactionStatus, Set<TransactionStatus>> ALLOWED_SOURCES = Map.of(
+            PENDING, EnumSet.noneOf(TransactionStatus.class),
+            SUCCESSFUL, EnumSet.of(PENDING, FAILED),
+            FAILED, EnumSet.of(PENDING),
+            CANCELLED, EnumSet.of(PENDING)
+    );
+
+    private PaymentStatusTransitions() {
+    }
+
+    public static Set<TransactionStatus> allowedSources(TransactionStatus target) {
+        return ALLOWED_SOURCES.getOrDefault(target, EnumSet.noneOf(TransactionStatus.class));
+    }
+
+    public static boolean isAllowed(TransactionStatus from, TransactionStatus to) {
+        return allowedSources(to).contains(from);
+    }
+
+    // True when no transition leads out of the status, so it can no longer change (SUCCESSFUL, CANCELLED).
+    public static boolean isFinal(TransactionStatus status) {
+        return ALLOWED_SOURCES.values().stream().noneMatch(sources -> sources.contains(status));
+    }
+}
@@ -0,0 +1,23 @@
+package rmit.saintgiong.paymentservice.domain.repositories;
+
+import rmit.saintgiong.paymentapi.internal.common.dto.request.QueryCompanyPaymentFilterDto;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentCursor;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentView;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface CompanyPaymentReadRepository {
+
+    /**
+     * One keyset page of projected rows, newest first. Returns at most {@code limit} rows.
+     */
+    List<CompanyPaymentView> findListingPage(QueryCompanyPaymentFilterDto filter, CompanyPaymentCursor after, int limit);
+
+    /**
+     * Streams matching payments newest first over a server-side cursor.
+     * Must be consumed inside a transaction and closed by the caller.
+     */
+    Stream<CompanyPaymentEntity> streamForExport(QueryCompanyPaymentFilterDto filter);
+}
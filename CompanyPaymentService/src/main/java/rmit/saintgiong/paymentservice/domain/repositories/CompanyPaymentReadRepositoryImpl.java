@@ -0,0 +1,77 @@
+package rmit.saintgiong.paymentservice.domain.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import rmit.saintgiong.paymentapi.internal.common.dto.request.QueryCompanyPaymentFilterDto;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentCursor;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentView;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public class CompanyPaymentReadRepositoryImpl implements CompanyPaymentReadRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // With a fetch size inside a transaction the Postgres driver reads through a cursor instead of buffering all rows.
+    @Value("${payment.export.fetchSize:500}")
+    private int fetchSize;
+
+    @Override
+    public List<CompanyPaymentView> findListingPage(QueryCompanyPaymentFilterDto filter, CompanyPaymentCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CompanyPaymentView> query = cb.createQuery(CompanyPaymentView.class);
+        Root<CompanyPaymentEntity> root = query.from(CompanyPaymentEntity.class);
+
+        query.select(cb.construct(
+                CompanyPaymentView.class,
+                root.get("id"),
+                root.get("companyId"),
+                root.get("amount"),
+                root.get("currency"),
+                root.get("status"),
+                root.get("method"),
+                root.get("paymentTransactionId"),
+                root.get("purchasedAt")));
+        applyListing(query, root, cb, filter, after);
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<CompanyPaymentEntity> streamForExport(QueryCompanyPaymentFilterDto filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CompanyPaymentEntity> query = cb.createQuery(CompanyPaymentEntity.class);
+        Root<CompanyPaymentEntity> root = query.from(CompanyPaymentEntity.class);
+        applyListing(query, root, cb, filter, null);
+
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private void applyListing(
+            CriteriaQuery<?> query,
+            Root<CompanyPaymentEntity> root,
+            CriteriaBuilder cb,
+            QueryCompanyPaymentFilterDto filter,
+            CompanyPaymentCursor after
+    ) {
+        Predicate where = CompanyPaymentSpecifications.listing(filter, after).toPredicate(root, query, cb);
+        if (where != null) {
+            query.where(where);
+        }
+        query.orderBy(cb.desc(root.get("purchasedAt")), cb.desc(root.get("id")));
+    }
+}
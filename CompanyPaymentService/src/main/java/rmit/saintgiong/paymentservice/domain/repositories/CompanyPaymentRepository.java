@@ -1,13 +1,98 @@
 package rmit.saintgiong.paymentservice.domain.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentView;
 import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface CompanyPaymentRepository extends JpaRepository<CompanyPaymentEntity, UUID> {
+/**
+ * Lookups by id alone (findById, findViewById, the id-based patches) cannot prune partitions: the
+ * primary key is (id, purchased_at), so Postgres probes that index once per monthly partition,
+ * about 28 probes at the default retention. Writes that already hold the row pass purchased_at.
+ */
+public interface CompanyPaymentRepository extends JpaRepository<CompanyPaymentEntity, UUID>, CompanyPaymentReadRepository, CompanyPaymentWriteRepository {
     Optional<CompanyPaymentEntity> findByStripePaymentIntentId(String stripePaymentIntentId);
     Optional<CompanyPaymentEntity> findByStripeCheckoutSessionId(String stripeCheckoutSessionId);
     Optional<CompanyPaymentEntity> findByPaymentTransactionId(String paymentTransactionId);
+    @Query("""
+            SELECT new rmit.saintgiong.paymentservice.domain.models.CompanyPaymentView(
+                e.id, e.companyId, e.amount, e.currency, e.status, e.method, e.paymentTransactionId, e.purchasedAt)
+            FROM CompanyPaymentEntity e
+            WHERE e.id = :id
+            """)
+    Optional<CompanyPaymentView> findViewById(@Param("id") UUID id);
+
+    Optional<CompanyPaymentEntity> findByCompanyIdAndIdempotencyKey(UUID companyId, String idempotencyKey);
+
+    // Latest checkout for the same company and price that can still be paid.
+    Optional<CompanyPaymentEntity> findFirstByCompanyIdAndStatusAndAmountAndCurrencyAndCheckoutExpiresAtAfterOrderByPurchasedAtDesc(
+            UUID companyId,
+            TransactionStatus status,
+            Double amount,
+            String currency,
+            LocalDateTime expiresAfter
+    );
+
+    // Matches any of the identifiers a Stripe checkout event can carry in one round trip; null params never match.
+    @Query("""
+            SELECT e FROM CompanyPaymentEntity e
+            WHERE e.stripeCheckoutSessionId = :sessionId
+               OR e.stripePaymentIntentId = :paymentIntentId
+               OR e.id = :clientReferenceId
+               OR e.id = :metadataPaymentId
+            """)
+    List<CompanyPaymentEntity> findByAnyStripeIdentifier(
+            @Param("sessionId") String sessionId,
+            @Param("paymentIntentId") String paymentIntentId,
+            @Param("clientReferenceId") UUID clientReferenceId,
+            @Param("metadataPaymentId") UUID metadataPaymentId
+    );
+
+    // Compare-and-set status change: applies only from a legal source status, takes no row lock
+    // beyond the UPDATE itself, and returns 0 when another event already moved the payment on.
+    // purchasedAt is the partition key; with it the UPDATE touches one monthly partition.
+    // The context is flushed before and cleared after, so an entity loaded earlier in the
+    // transaction is never flushed over the new row with its stale version.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE CompanyPaymentEntity e
+            SET e.status = :target,
+                e.paymentTransactionId = COALESCE(:paymentTransactionId, e.paymentTransactionId),
+                e.version = e.version + 1
+            WHERE e.id = :id AND e.purchasedAt = :purchasedAt AND e.status IN :allowedSources
+            """)
+    int transitionStatus(
+            @Param("id") UUID id,
+            @Param("purchasedAt") LocalDateTime purchasedAt,
+            @Param("allowedSources") Collection<TransactionStatus> allowedSources,
+            @Param("target") TransactionStatus target,
+            @Param("paymentTransactionId") String paymentTransactionId
+    );
+
+    // Same-status update for a payment that is already settled: stores the charge id when the row
+    // still has no transaction id or only the intent id checkout.session.completed put there.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE CompanyPaymentEntity e
+            SET e.paymentTransactionId = :chargeId,
+                e.version = e.version + 1
+            WHERE e.id = :id AND e.purchasedAt = :purchasedAt AND e.status = :status
+              AND (e.paymentTransactionId IS NULL OR e.paymentTransactionId = :replaceableId)
+            """)
+    int fillPaymentTransactionId(
+            @Param("id") UUID id,
+            @Param("purchasedAt") LocalDateTime purchasedAt,
+            @Param("status") TransactionStatus status,
+            @Param("replaceableId") String replaceableId,
+            @Param("chargeId") String chargeId
+    );
 }
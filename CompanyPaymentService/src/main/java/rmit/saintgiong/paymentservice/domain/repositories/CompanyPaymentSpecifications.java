@@ -0,0 +1,77 @@
+package rmit.saintgiong.paymentservice.domain.repositories;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import rmit.saintgiong.paymentapi.internal.common.dto.request.QueryCompanyPaymentFilterDto;
+import rmit.saintgiong.paymentservice.common.exception.domain.DomainException;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentCursor;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static rmit.saintgiong.paymentapi.internal.common.type.DomainCode.INVALID_REQUEST_PARAMETER;
+
+public final class CompanyPaymentSpecifications {
+
+    private CompanyPaymentSpecifications() {
+    }
+
+    // Only present filters become predicates, so each combination maps onto one composite index.
+    public static Specification<CompanyPaymentEntity> listing(QueryCompanyPaymentFilterDto filter, CompanyPaymentCursor after) {
+        // Parsed up front: thrown inside the specification it would surface as a data access error.
+        UUID companyId = filter != null ? parseCompanyId(filter.getCompanyId()) : null;
+
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (filter != null) {
+                if (companyId != null) {
+                    predicates.add(cb.equal(root.get("companyId"), companyId));
+                }
+                if (filter.getStatus() != null) {
+                    predicates.add(cb.equal(root.get("status"), filter.getStatus()));
+                }
+                if (filter.getCurrency() != null && !filter.getCurrency().isBlank()) {
+                    predicates.add(cb.equal(root.get("currency"), filter.getCurrency()));
+                }
+                if (filter.getFrom() != null) {
+                    predicates.add(cb.greaterThanOrEqualTo(root.get("purchasedAt"), toLocal(filter.getFrom())));
+                }
+                if (filter.getTo() != null) {
+                    predicates.add(cb.lessThan(root.get("purchasedAt"), toLocal(filter.getTo())));
+                }
+            }
+
+            if (after != null) {
+                // The plain upper bound is implied by the OR below, but only it gives the planner an
+                // index range to seek to; the OR alone is applied as a filter over the whole range.
+                predicates.add(cb.lessThanOrEqualTo(root.get("purchasedAt"), after.purchasedAt()));
+                predicates.add(cb.or(
+                        cb.lessThan(root.get("purchasedAt"), after.purchasedAt()),
+                        cb.and(
+                                cb.equal(root.get("purchasedAt"), after.purchasedAt()),
+                                cb.lessThan(root.<UUID>get("id"), after.id()))));
+            }
+
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    private static UUID parseCompanyId(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return UUID.fromString(value.trim());
+        } catch (IllegalArgumentException e) {
+            throw new DomainException(INVALID_REQUEST_PARAMETER, "companyId");
+        }
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
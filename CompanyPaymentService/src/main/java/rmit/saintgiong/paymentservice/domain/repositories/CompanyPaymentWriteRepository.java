@@ -0,0 +1,22 @@
+package rmit.saintgiong.paymentservice.domain.repositories;
+
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentPatch;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentView;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CompanyPaymentWriteRepository {
+
+    /**
+     * Writes only the non-null fields of {@code patch} with a single UPDATE ... RETURNING.
+     * Empty when no payment has that id. Must run inside a transaction.
+     */
+    Optional<CompanyPaymentView> patch(CompanyPaymentPatch patch);
+
+    /**
+     * Applies every patch in one UPDATE ... FROM unnest(...) statement and returns the updated rows.
+     * Ids that do not exist are simply absent from the result. Must run inside a transaction.
+     */
+    List<CompanyPaymentView> patchAll(List<CompanyPaymentPatch> patches);
+}
@@ -0,0 +1,115 @@
+package rmit.saintgiong.paymentservice.domain.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import rmit.saintgiong.paymentapi.internal.common.type.PaymentMethod;
+import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentPatch;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentView;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+/**
+ * Partial updates issued as plain SQL through the JPA transaction's connection. Nothing is loaded
+ * into the persistence context, so there is no SELECT before the write and no dirty checking;
+ * RETURNING hands back the projection the API responds with.
+ */
+public class CompanyPaymentWriteRepositoryImpl implements CompanyPaymentWriteRepository {
+
+    private static final String RETURNING =
+            " RETURNING t.id, t.company_id, t.amount, t.currency, t.status, t.method, t.payment_transaction_id, t.purchased_at";
+
+    private static final String PATCH_ALL = """
+            UPDATE transactions t
+            SET amount = COALESCE(v.amount, t.amount),
+                currency = COALESCE(v.currency, t.currency),
+                method = COALESCE(v.method, t.method),
+                version = t.version + 1
+            FROM unnest(?::uuid[], ?::float8[], ?::varchar[], ?::varchar[]) AS v(id, amount, currency, method)
+            WHERE t.id = v.id
+            """;
+
+    private static final RowMapper<CompanyPaymentView> VIEW_MAPPER = (rs, rowNum) -> new CompanyPaymentView(
+            rs.getObject("id", UUID.class),
+            rs.getObject("company_id", UUID.class),
+            rs.getObject("amount", Double.class),
+            rs.getString("currency"),
+            TransactionStatus.valueOf(rs.getString("status")),
+            PaymentMethod.valueOf(rs.getString("method")),
+            rs.getString("payment_transaction_id"),
+            rs.getObject("purchased_at", LocalDateTime.class)
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CompanyPaymentWriteRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<CompanyPaymentView> patch(CompanyPaymentPatch patch) {
+        StringJoiner assignments = new StringJoiner(", ");
+        List<Object> args = new ArrayList<>(4);
+
+        if (patch.amount() != null) {
+            assignments.add("amount = ?");
+            args.add(patch.amount());
+        }
+        if (patch.currency() != null) {
+            assignments.add("currency = ?");
+            args.add(patch.currency());
+        }
+        if (patch.method() != null) {
+            assignments.add("method = ?");
+            args.add(patch.method().name());
+        }
+        assignments.add("version = version + 1");
+        args.add(patch.id());
+
+        String sql = "UPDATE transactions t SET " + assignments + " WHERE t.id = ?" + RETURNING;
+        return jdbcTemplate.query(sql, VIEW_MAPPER, args.toArray()).stream().findFirst();
+    }
+
+    @Override
+    public List<CompanyPaymentView> patchAll(List<CompanyPaymentPatch> patches) {
+        if (patches.isEmpty()) return List.of();
+
+        int size = patches.size();
+        UUID[] ids = new UUID[size];
+        Double[] amounts = new Double[size];
+        String[] currencies = new String[size];
+        String[] methods = new String[size];
+        for (int i = 0; i < size; i++) {
+            CompanyPaymentPatch patch = patches.get(i);
+            ids[i] = patch.id();
+            amounts[i] = patch.amount();
+            currencies[i] = patch.currency();
+            methods[i] = patch.method() == null ? null : patch.method().name();
+        }
+
+        return jdbcTemplate.query(
+                (Connection connection) -> {
+                    PreparedStatement statement = connection.prepareStatement(PATCH_ALL + RETURNING);
+                    statement.setArray(1, array(connection, "uuid", ids));
+                    statement.setArray(2, array(connection, "float8", amounts));
+                    statement.setArray(3, array(connection, "varchar", currencies));
+                    statement.setArray(4, array(connection, "varchar", methods));
+                    return statement;
+                },
+                VIEW_MAPPER
+        );
+    }
+
+    private static Array array(Connection connection, String type, Object[] values) throws SQLException {
+        return connection.createArrayOf(type, values);
+    }
+}
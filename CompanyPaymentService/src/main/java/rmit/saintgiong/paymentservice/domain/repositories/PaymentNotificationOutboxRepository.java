@@ -0,0 +1,59 @@
+package rmit.saintgiong.paymentservice.domain.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.PaymentNotificationOutboxEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface PaymentNotificationOutboxRepository extends JpaRepository<PaymentNotificationOutboxEntity, UUID> {
+
+    // Only a company's oldest undelivered row is eligible, so a row waiting on retry backoff holds
+    // back that company's later notifications and Kafka receives them in order.
+    @Query(value = """
+            SELECT * FROM payment_notification_outbox o
+            WHERE o.delivered_at IS NULL AND o.next_attempt_at <= :now
+              AND NOT EXISTS (
+                  SELECT 1 FROM payment_notification_outbox older
+                  WHERE older.company_id = o.company_id
+                    AND older.delivered_at IS NULL
+                    AND older.created_at < o.created_at
+              )
+            ORDER BY o.created_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<PaymentNotificationOutboxEntity> lockNextBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Leases the claimed rows so other relays skip them while the sends are in flight.
+    @Modifying
+    @Query("UPDATE PaymentNotificationOutboxEntity e SET e.nextAttemptAt = :leaseUntil WHERE e.id IN :ids")
+    int lease(@Param("ids") List<UUID> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("UPDATE PaymentNotificationOutboxEntity e SET e.deliveredAt = :deliveredAt, e.lastError = null WHERE e.id IN :ids")
+    int markDelivered(@Param("ids") List<UUID> ids, @Param("deliveredAt") LocalDateTime deliveredAt);
+
+    @Modifying
+    @Query("""
+            UPDATE PaymentNotificationOutboxEntity e
+            SET e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError
+            WHERE e.id = :id
+            """)
+    int markAttemptFailed(
+            @Param("id") UUID id,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("lastError") String lastError
+    );
+
+    @Query("SELECT MIN(e.createdAt) FROM PaymentNotificationOutboxEntity e WHERE e.deliveredAt IS NULL")
+    LocalDateTime findOldestUndeliveredCreatedAt();
+
+    @Modifying
+    @Query("DELETE FROM PaymentNotificationOutboxEntity e WHERE e.deliveredAt < :cutoff")
+    int deleteDeliveredBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,29 @@
+package rmit.saintgiong.paymentservice.domain.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.StripeProcessedEventEntity;
+
+import java.time.LocalDateTime;
+
+public interface StripeProcessedEventRepository extends JpaRepository<StripeProcessedEventEntity, String> {
+
+    // A concurrent delivery of the same event blocks on the primary key until the first commits, then gets 0.
+    @Modifying
+    @Query(value = """
+            INSERT INTO stripe_processed_events (event_id, event_type, processed_at)
+            VALUES (:eventId, :eventType, :processedAt)
+            ON CONFLICT (event_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(
+            @Param("eventId") String eventId,
+            @Param("eventType") String eventType,
+            @Param("processedAt") LocalDateTime processedAt
+    );
+
+    @Modifying
+    @Query("DELETE FROM StripeProcessedEventEntity e WHERE e.processedAt < :cutoff")
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
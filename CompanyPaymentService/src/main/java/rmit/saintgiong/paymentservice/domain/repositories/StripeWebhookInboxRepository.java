@@ -0,0 +1,94 @@
+package rmit.saintgiong.paymentservice.domain.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import rmit.saintgiong.paymentapi.internal.common.type.WebhookInboxStatus;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.StripeWebhookInboxEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface StripeWebhookInboxRepository extends JpaRepository<StripeWebhookInboxEntity, UUID> {
+
+    // Stripe redelivers on timeouts, so a second copy of the same event is silently dropped.
+    @Modifying
+    @Query(value = """
+            INSERT INTO stripe_webhook_inbox (id, event_id, event_type, payload, status, attempts, received_at, next_attempt_at)
+            VALUES (:id, :eventId, :eventType, :payload, 'PENDING', 0, :receivedAt, :receivedAt)
+            ON CONFLICT (event_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(
+            @Param("id") UUID id,
+            @Param("eventId") String eventId,
+            @Param("eventType") String eventType,
+            @Param("payload") String payload,
+            @Param("receivedAt") LocalDateTime receivedAt
+    );
+
+    // SKIP LOCKED lets several pods drain the same inbox without handing out a row twice.
+    @Query(value = """
+            SELECT * FROM stripe_webhook_inbox
+            WHERE status = 'PENDING' AND next_attempt_at <= :now
+            ORDER BY received_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<StripeWebhookInboxEntity> lockNextBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE StripeWebhookInboxEntity e SET e.status = :status, e.lockedAt = :lockedAt WHERE e.id IN :ids")
+    int markLocked(
+            @Param("ids") List<UUID> ids,
+            @Param("status") WebhookInboxStatus status,
+            @Param("lockedAt") LocalDateTime lockedAt
+    );
+
+    @Modifying
+    @Query("UPDATE StripeWebhookInboxEntity e SET e.status = :status, e.processedAt = :processedAt, e.lastError = null WHERE e.id = :id")
+    int markProcessed(
+            @Param("id") UUID id,
+            @Param("status") WebhookInboxStatus status,
+            @Param("processedAt") LocalDateTime processedAt
+    );
+
+    @Modifying
+    @Query("""
+            UPDATE StripeWebhookInboxEntity e
+            SET e.status = :status, e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError
+            WHERE e.id = :id
+            """)
+    int markAttemptFailed(
+            @Param("id") UUID id,
+            @Param("status") WebhookInboxStatus status,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("lastError") String lastError
+    );
+
+    // Rows left in PROCESSING by a pod that died mid-batch go back to the queue.
+    @Modifying
+    @Query("""
+            UPDATE StripeWebhookInboxEntity e
+            SET e.status = :releasedStatus, e.lockedAt = null
+            WHERE e.status = :lockedStatus AND e.lockedAt < :cutoff
+            """)
+    int releaseStuck(
+            @Param("lockedStatus") WebhookInboxStatus lockedStatus,
+            @Param("releasedStatus") WebhookInboxStatus releasedStatus,
+            @Param("cutoff") LocalDateTime cutoff
+    );
+
+    @Modifying
+    @Query("DELETE FROM StripeWebhookInboxEntity e WHERE e.status = :status AND e.processedAt < :cutoff")
+    int deleteByStatusAndProcessedAtBefore(
+            @Param("status") WebhookInboxStatus status,
+            @Param("cutoff") LocalDateTime cutoff
+    );
+
+    long countByStatus(WebhookInboxStatus status);
+
+    @Query("SELECT MIN(e.receivedAt) FROM StripeWebhookInboxEntity e WHERE e.status = :status")
+    LocalDateTime findOldestReceivedAt(@Param("status") WebhookInboxStatus status);
+}
@@ -2,6 +2,7 @@ package rmit.saintgiong.paymentservice.domain.repositories.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.springframework.data.domain.Persistable;
 import rmit.saintgiong.paymentapi.internal.common.type.PaymentMethod;
 import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
 
@@ -10,21 +11,33 @@ import java.util.UUID;
 
 @Entity
 @Data
+// Range-partitioned by purchased_at month; the schema is owned by the Flyway migrations in db/migration.
 @Table(name = "transactions", indexes = {
         @Index(name = "idx_transaction_payment_txn_id", columnList = "payment_transaction_id"),
         @Index(name = "idx_transaction_stripe_intent_id", columnList = "stripe_payment_intent_id"),
-        @Index(name = "idx_transaction_stripe_checkout_session_id", columnList = "stripe_checkout_session_id")
+        @Index(name = "idx_transaction_stripe_checkout_session_id", columnList = "stripe_checkout_session_id"),
+        // Partial (idempotency_key IS NOT NULL) in the migration; serves the create service's replay lookup.
+        @Index(name = "idx_transaction_company_idempotency_key", columnList = "company_id, idempotency_key"),
+        // Keyset listing: one index per filter combination, all ending in the (purchased_at, id) sort key.
+        @Index(name = "idx_transaction_purchased", columnList = "purchased_at, id"),
+        @Index(name = "idx_transaction_company_purchased", columnList = "company_id, purchased_at, id"),
+        @Index(name = "idx_transaction_status_purchased", columnList = "status, purchased_at, id"),
+        @Index(name = "idx_transaction_currency_purchased", columnList = "currency, purchased_at, id"),
+        @Index(name = "idx_transaction_company_status_purchased", columnList = "company_id, status, purchased_at, id"),
+        @Index(name = "idx_transaction_company_currency_purchased", columnList = "company_id, currency, purchased_at, id"),
+        @Index(name = "idx_transaction_status_currency_purchased", columnList = "status, currency, purchased_at, id"),
+        @Index(name = "idx_transaction_company_status_currency_purchased", columnList = "company_id, status, currency, purchased_at, id")
 })
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class CompanyPaymentEntity {
+public class CompanyPaymentEntity implements Persistable<UUID> {
     @Id
     private UUID id;
 
-    @Column(nullable = false)
+    @Column(name = "company_id", nullable = false)
     private UUID companyId;
 
     @Column(nullable = false)
@@ -40,7 +53,7 @@ public class CompanyPaymentEntity {
     @Column(nullable = false)
     private PaymentMethod method;
 
-    @Column(nullable = false)
+    @Column(name = "purchased_at", nullable = false)
     private LocalDateTime purchasedAt;
 
     @Enumerated(EnumType.STRING)
@@ -53,9 +66,45 @@ public class CompanyPaymentEntity {
     @Column(name = "stripe_checkout_session_id")
     private String stripeCheckoutSessionId;
 
-    @Column(name = "payment_transaction_id", length = 255, unique = true)
+    @Column(name = "payment_transaction_id", length = 255)
     private String paymentTransactionId;
 
     @Column
     private UUID subscriptionId;
+
+    // Unique per company through transaction_idempotency_keys, claimed by an insert trigger.
+    @Column(name = "idempotency_key", length = 255)
+    private String idempotencyKey;
+
+    @Column(name = "checkout_url", length = 2048)
+    private String checkoutUrl;
+
+    @Column(name = "checkout_expires_at")
+    private LocalDateTime checkoutExpiresAt;
+
+    // Bumped by every write, including the conditional status UPDATEs, so stale read-modify-save loses.
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    // Ids are assigned before insert, so mark rows as new explicitly; otherwise save() and saveAll()
+    // merge (SELECT, then INSERT) one row at a time and JDBC batching never kicks in.
+    @Transient
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean newEntity = true;
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newEntity = false;
+    }
 }
@@ -1,9 +1,11 @@
 package rmit.saintgiong.paymentservice.domain.services.external.payment;
 
 import java.util.UUID;
-import lombok.RequiredArgsConstructor;
+import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import rmit.saintgiong.paymentapi.external.services.ExternalCompanyPaymentRequestInterface;
 import rmit.saintgiong.paymentapi.external.services.kafka.EventProducerInterface;
 import rmit.saintgiong.shared.dto.avro.payment.SubscriptionPaidRequestRecord;
@@ -11,28 +13,52 @@ import rmit.saintgiong.shared.type.KafkaTopic;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ExternalCompanyPaymentRequestService implements ExternalCompanyPaymentRequestInterface {
 
     private final EventProducerInterface eventProducer;
 
+    private final SubscriptionPaidOutboxService subscriptionPaidOutbox;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // The outbox relay publishes through this service, so the outbox is injected lazily.
+    public ExternalCompanyPaymentRequestService(
+            EventProducerInterface eventProducer,
+            @Lazy SubscriptionPaidOutboxService subscriptionPaidOutbox,
+            TransactionTemplate transactionTemplate
+    ) {
+        this.eventProducer = eventProducer;
+        this.subscriptionPaidOutbox = subscriptionPaidOutbox;
+        this.transactionTemplate = transactionTemplate;
+    }
+
     @Override
     public void sendSubscriptionPaidRequest(UUID companyId, UUID transactionId, String status) {
-        log.info("method=sendSubscriptionPaidNotification, message=Sending subscription paid notification, companyId={}, transactionId={}, status={}",
+        log.info("method=sendSubscriptionPaidNotification, message=Queueing subscription paid notification, companyId={}, transactionId={}, status={}",
                 companyId, transactionId, status);
 
-        SubscriptionPaidRequestRecord requestRecord = SubscriptionPaidRequestRecord.newBuilder()
-                .setCompanyId(companyId)
-                .setTransactionId(transactionId)
-                .setStatus(status)
-                .build();
+        // Joins the caller's transaction when there is one. Failed sends are retried by the outbox
+        // relay, which keeps a company's notifications in order instead of resending out of band.
+        transactionTemplate.executeWithoutResult(tx -> subscriptionPaidOutbox.enqueue(companyId, transactionId, status));
+    }
 
-        eventProducer.send(
+    @Override
+    public CompletableFuture<Void> sendSubscriptionPaidRequestAsync(UUID companyId, UUID transactionId, String status) {
+        log.debug("method=sendSubscriptionPaidRequestAsync, message=Sending subscription paid notification, companyId={}, transactionId={}, status={}",
+                companyId, transactionId, status);
+
+        return eventProducer.sendAsync(
                 KafkaTopic.JM_SUBSCRIPTION_PAID_NOTIFICATION_TOPIC,
-                requestRecord
+                companyId.toString(),
+                buildSubscriptionPaidRecord(companyId, transactionId, status)
         );
+    }
 
-        log.info("method=sendSubscriptionPaidNotification, message=Subscription paid notification sent successfully, companyId={}, status={}", 
-                companyId, status);
+    private SubscriptionPaidRequestRecord buildSubscriptionPaidRecord(UUID companyId, UUID transactionId, String status) {
+        return SubscriptionPaidRequestRecord.newBuilder()
+                .setCompanyId(companyId)
+                .setTransactionId(transactionId)
+                .setStatus(status)
+                .build();
     }
 }
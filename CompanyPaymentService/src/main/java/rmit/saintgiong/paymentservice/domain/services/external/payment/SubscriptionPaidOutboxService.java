@@ -0,0 +1,219 @@
+package rmit.saintgiong.paymentservice.domain.services.external.payment;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import rmit.saintgiong.paymentapi.external.services.ExternalCompanyPaymentRequestInterface;
+import rmit.saintgiong.paymentservice.domain.repositories.PaymentNotificationOutboxRepository;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.PaymentNotificationOutboxEntity;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox for subscription-paid notifications.
+ * {@link #enqueue} writes the notification in the caller's transaction, next to the payment
+ * status change; a relay later publishes pending rows to Kafka in batches. The relay waits up to
+ * sendTimeoutMs for Kafka, so it polls on its own thread rather than the shared scheduler.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SubscriptionPaidOutboxService {
+
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    private final PaymentNotificationOutboxRepository outboxRepository;
+
+    private final ExternalCompanyPaymentRequestInterface externalPaymentRequestService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payment.outbox.pollIntervalMs:500}")
+    private long pollIntervalMs;
+
+    @Value("${payment.outbox.batchSize:100}")
+    private int batchSize;
+
+    @Value("${payment.outbox.sendTimeoutMs:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${payment.outbox.maxBackoffSeconds:300}")
+    private long maxBackoffSeconds;
+
+    @Value("${payment.outbox.retentionDays:7}")
+    private long retentionDays;
+
+    private final AtomicLong oldestUndeliveredAgeSeconds = new AtomicLong();
+
+    private Counter deliveredCounter;
+    private Counter failedCounter;
+    private DistributionSummary batchSizeSummary;
+    private ScheduledExecutorService relayThread;
+
+    @PostConstruct
+    public void init() {
+        this.deliveredCounter = meterRegistry.counter("payment.outbox.records", "outcome", "delivered");
+        this.failedCounter = meterRegistry.counter("payment.outbox.records", "outcome", "failed");
+        this.batchSizeSummary = DistributionSummary.builder("payment.outbox.batch.size")
+                .description("Outbox rows published per relay run")
+                .register(meterRegistry);
+        Gauge.builder("payment.outbox.oldest.age", oldestUndeliveredAgeSeconds, AtomicLong::get)
+                .description("Age in seconds of the oldest undelivered outbox row")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRelay() {
+        this.relayThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        relayThread.scheduleWithFixedDelay(this::relayQuietly, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (relayThread != null) relayThread.shutdownNow();
+    }
+
+    // Must run inside the transaction that changes the payment status.
+    public void enqueue(UUID companyId, UUID transactionId, String status) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.save(PaymentNotificationOutboxEntity.builder()
+                .id(UUID.randomUUID())
+                .companyId(companyId)
+                .transactionId(transactionId)
+                .status(status)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .attempts(0)
+                .build());
+    }
+
+    public void relay() {
+        List<PaymentNotificationOutboxEntity> batch = claimBatch();
+        if (batch.isEmpty()) return;
+
+        List<CompletableFuture<Void>> sends = new ArrayList<>(batch.size());
+        for (PaymentNotificationOutboxEntity row : batch) {
+            sends.add(externalPaymentRequestService.sendSubscriptionPaidRequestAsync(
+                    row.getCompanyId(), row.getTransactionId(), row.getStatus()));
+        }
+
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("method=relay, message=Outbox sends still pending after {} ms, they will be retried", sendTimeoutMs);
+        } catch (Exception ignored) {
+            // Individual failures are read from each future below.
+        }
+
+        List<UUID> delivered = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            PaymentNotificationOutboxEntity row = batch.get(i);
+            CompletableFuture<Void> send = sends.get(i);
+
+            if (send.isDone() && !send.isCompletedExceptionally()) {
+                delivered.add(row.getId());
+            } else {
+                scheduleRetry(row, failureOf(send));
+            }
+        }
+
+        if (!delivered.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.markDelivered(delivered, now));
+            deliveredCounter.increment(delivered.size());
+        }
+        batchSizeSummary.record(batch.size());
+    }
+
+    // An exception escaping a scheduleWithFixedDelay task would cancel every later run.
+    private void relayQuietly() {
+        try {
+            relay();
+        } catch (RuntimeException e) {
+            log.error("method=relay, message=Outbox relay failed, will retry on next poll, err={}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.outbox.metricsIntervalMs:5000}")
+    public void refreshMetrics() {
+        LocalDateTime oldest = outboxRepository.findOldestUndeliveredCreatedAt();
+        oldestUndeliveredAgeSeconds.set(oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toSeconds());
+    }
+
+    @Scheduled(fixedDelayString = "${payment.outbox.sweepIntervalMs:3600000}")
+    public void sweepDelivered() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status -> outboxRepository.deleteDeliveredBefore(cutoff));
+
+        if (deleted != null && deleted > 0) {
+            log.info("method=sweepDelivered, message=Removed delivered outbox rows, count={}", deleted);
+        }
+    }
+
+    private List<PaymentNotificationOutboxEntity> claimBatch() {
+        List<PaymentNotificationOutboxEntity> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<PaymentNotificationOutboxEntity> locked = outboxRepository.lockNextBatch(now, batchSize);
+            if (!locked.isEmpty()) {
+                LocalDateTime leaseUntil = now.plus(Duration.ofMillis(sendTimeoutMs * 2));
+                outboxRepository.lease(locked.stream().map(PaymentNotificationOutboxEntity::getId).toList(), leaseUntil);
+            }
+            return locked;
+        });
+        return batch == null ? List.of() : batch;
+    }
+
+    private void scheduleRetry(PaymentNotificationOutboxEntity row, String error) {
+        int attempt = row.getAttempts() + 1;
+        long delaySeconds = Math.min(maxBackoffSeconds, 1L << Math.min(attempt, 16));
+        String lastError = error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.markAttemptFailed(
+                row.getId(), LocalDateTime.now().plusSeconds(delaySeconds), lastError));
+        failedCounter.increment();
+
+        log.warn("method=relay, message=Failed to publish subscription paid notification, companyId={}, transactionId={}, attempt={}, retryInSeconds={}, err={}",
+                row.getCompanyId(), row.getTransactionId(), attempt, delaySeconds, lastError);
+    }
+
+    private String failureOf(CompletableFuture<Void> send) {
+        if (!send.isDone()) {
+            return "Timed out waiting for Kafka acknowledgement";
+        }
+        try {
+            send.join();
+            return "Unknown failure";
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getName();
+        }
+    }
+}
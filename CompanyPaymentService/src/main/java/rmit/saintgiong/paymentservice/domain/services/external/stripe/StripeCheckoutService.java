@@ -1,22 +1,32 @@
 package rmit.saintgiong.paymentservice.domain.services.external.stripe;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stripe.model.Event;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.checkout.Session;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import rmit.saintgiong.paymentapi.external.services.ExternalCompanyPaymentRequestInterface;
 import rmit.saintgiong.paymentapi.external.services.stripe.ExternalStripeCheckoutInterface;
 import rmit.saintgiong.paymentapi.internal.common.dto.request.CreateStripeCheckoutRequestDto;
 import rmit.saintgiong.paymentapi.internal.common.dto.response.CreateStripeCheckoutResponseDto;
 import rmit.saintgiong.paymentapi.internal.common.stripe.CheckoutSessionInfo;
+import rmit.saintgiong.paymentapi.internal.common.stripe.PaymentIntentInfo;
+import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
+import rmit.saintgiong.paymentservice.domain.models.PaymentStatusTransitions;
 import rmit.saintgiong.paymentservice.domain.repositories.CompanyPaymentRepository;
 import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
+import rmit.saintgiong.paymentservice.domain.services.external.payment.SubscriptionPaidOutboxService;
+import rmit.saintgiong.paymentservice.domain.services.internal.CompanyPaymentReadCache;
+import rmit.saintgiong.paymentservice.domain.services.internal.PaymentStatusEventBroker;
+import rmit.saintgiong.paymentservice.stripe.service.StripeEventPayloadExtractor;
+import rmit.saintgiong.paymentservice.stripe.service.StripePaymentLookupCache;
+import rmit.saintgiong.paymentservice.stripe.service.StripePaymentLookupCache.PaymentRef;
 import rmit.saintgiong.paymentservice.stripe.service.StripePaymentService;
 
 import static rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus.FAILED;
@@ -31,9 +41,19 @@ public class StripeCheckoutService implements ExternalStripeCheckoutInterface {
 
     private final CompanyPaymentRepository companyPaymentRepository;
 
-    private final ObjectMapper objectMapper;
+    private final StripeEventPayloadExtractor payloadExtractor;
 
-    private final ExternalCompanyPaymentRequestInterface externalPaymentRequestService;
+    private final StripePaymentLookupCache lookupCache;
+
+    private final SubscriptionPaidOutboxService subscriptionPaidOutbox;
+
+    private final CompanyPaymentReadCache readCache;
+
+    private final PaymentStatusEventBroker statusEvents;
+
+    // Opt-in: retry with the Stripe SDK deserializer when the streaming extractor finds no data.object.
+    @Value("${stripe.webhook.sdkDeserializerFallback:false}")
+    private boolean sdkDeserializerFallback;
 
     @Override
     public CreateStripeCheckoutResponseDto createStripeCheckout(CreateStripeCheckoutRequestDto req) {
@@ -71,17 +91,13 @@ public class StripeCheckoutService implements ExternalStripeCheckoutInterface {
             return;
         }
 
-        CompanyPaymentEntity entity = findByCheckoutSessionInfo(info);
-        if (entity == null) return;
+        PaymentRef payment = findByCheckoutSessionInfo(info);
+        if (payment == null) return;
 
-        entity.setStatus(SUCCESSFUL);
-        if (info.paymentIntentId() != null && !info.paymentIntentId().isBlank()) {
-            entity.setPaymentTransactionId(info.paymentIntentId());
+        if (transitionStatus(payment, SUCCESSFUL, blankToNull(info.paymentIntentId()))) {
+            // Notify Subscription Service about successful payment
+            notifySuccessfulSubscriptionPaid(payment, SUCCESSFUL);
         }
-        companyPaymentRepository.save(entity);
-
-        // Notify Subscription Service about successful payment
-        notifySuccessfulSubscriptionPaid(entity);
     }
 
     @Override
@@ -89,17 +105,13 @@ public class StripeCheckoutService implements ExternalStripeCheckoutInterface {
         CheckoutSessionInfo info = extractCheckoutSessionInfo(event, payload);
         if (info == null) return;
 
-        CompanyPaymentEntity entity = findByCheckoutSessionInfo(info);
-        if (entity == null) return;
+        PaymentRef payment = findByCheckoutSessionInfo(info);
+        if (payment == null) return;
 
-        entity.setStatus(SUCCESSFUL);
-        if (info.paymentIntentId() != null && !info.paymentIntentId().isBlank()) {
-            entity.setPaymentTransactionId(info.paymentIntentId());
+        if (transitionStatus(payment, SUCCESSFUL, blankToNull(info.paymentIntentId()))) {
+            // Notify Subscription Service about successful payment
+            notifySuccessfulSubscriptionPaid(payment, SUCCESSFUL);
         }
-        companyPaymentRepository.save(entity);
-
-        // Notify Subscription Service about successful payment
-        notifySuccessfulSubscriptionPaid(entity);
     }
 
     @Override
@@ -107,154 +119,207 @@ public class StripeCheckoutService implements ExternalStripeCheckoutInterface {
         CheckoutSessionInfo info = extractCheckoutSessionInfo(event, payload);
         if (info == null) return;
 
-        CompanyPaymentEntity entity = findByCheckoutSessionInfo(info);
-        if (entity == null) return;
+        PaymentRef payment = findByCheckoutSessionInfo(info);
+        if (payment == null) return;
 
-        entity.setStatus(FAILED);
-        companyPaymentRepository.save(entity);
+        transitionStatus(payment, FAILED, null);
     }
 
     @Override
-    public void handlePaymentIntentSucceeded(Event event) {
-        PaymentIntent pi = deserializeOrNull(event, PaymentIntent.class);
-        if (pi == null) return;
-
-        companyPaymentRepository.findByStripePaymentIntentId(pi.getId()).ifPresent(entity -> {
-            entity.setStatus(SUCCESSFUL);
+    public void handlePaymentIntentSucceeded(Event event, String payload) {
+        PaymentIntentInfo info = extractPaymentIntentInfo(event, payload);
+        if (info == null) return;
 
-            String chargeId = null;
-            if (pi.getLatestCharge() != null) {
-                chargeId = String.valueOf(pi.getLatestCharge());
-            }
-            if (chargeId != null && !chargeId.isBlank()) {
-                entity.setPaymentTransactionId(chargeId);
+        findByPaymentIntentId(info.paymentIntentId()).ifPresent(payment -> {
+            String chargeId = blankToNull(info.latestChargeId());
+            if (transitionStatus(payment, SUCCESSFUL, chargeId)) {
+                // Notify Subscription Service about successful payment
+                notifySuccessfulSubscriptionPaid(payment, SUCCESSFUL);
+            } else if (chargeId != null) {
+                // checkout.session.completed may have settled it first; the charge id still belongs on the row.
+                recordChargeId(payment, info.paymentIntentId(), chargeId);
             }
+        });
+    }
 
-            companyPaymentRepository.save(entity);
+    @Override
+    public void handlePaymentIntentFailed(Event event, String payload) {
+        PaymentIntentInfo info = extractPaymentIntentInfo(event, payload);
+        if (info == null) return;
 
-            // Notify Subscription Service about successful payment
-            notifySuccessfulSubscriptionPaid(entity);
-        });
+        findByPaymentIntentId(info.paymentIntentId()).ifPresent(payment -> transitionStatus(payment, FAILED, null));
     }
 
-    private void notifySuccessfulSubscriptionPaid(CompanyPaymentEntity entity) {
-        if (entity.getCompanyId() == null) {
-            log.warn("method=notifySubscriptionService, message=No companyId linked to payment, skipping notification, paymentId={}", entity.getId());
-            return;
-        }
+    /**
+     * Moves the payment to {@code target} with a single conditional UPDATE. Concurrent deliveries
+     * for the same payment race on the WHERE clause instead of overwriting each other, so at most
+     * one of them applies the transition and only that one triggers side effects.
+     *
+     * <p>Works from the immutable columns in {@link PaymentRef}, never a managed entity: the UPDATE
+     * bumps the version, so a dirty entity would be flushed at commit against the old one and roll
+     * the transition back.
+     */
+    private boolean transitionStatus(PaymentRef payment, TransactionStatus target, String paymentTransactionId) {
+        int updated = companyPaymentRepository.transitionStatus(
+                payment.id(),
+                payment.purchasedAt(),
+                PaymentStatusTransitions.allowedSources(target),
+                target,
+                paymentTransactionId
+        );
 
-        try {
-            log.info("method=notifySubscriptionService, message=Sending subscription paid notification, companyId={}, paymentId={}, subscriptionId={}",
-                    entity.getCompanyId(), entity.getId(), entity.getSubscriptionId());
-            
-            externalPaymentRequestService.sendSubscriptionPaidRequest(
-                    entity.getCompanyId(),
-                    entity.getId(),
-                    entity.getStatus().toString()
-            );
-        } catch (Exception e) {
-            log.error("method=notifySubscriptionService, message=Failed to send subscription paid notification, companyId={}, error={}",
-                    entity.getCompanyId(), e.getMessage());
+        if (updated == 0) {
+            log.info("method=transitionStatus, message=Transition not applied, payment already moved on, paymentId={}, target={}",
+                    payment.id(), target);
+            return false;
         }
+
+        readCache.evictAfterCommit(payment.id());
+        statusEvents.publishAfterCommit(payment.id(), target);
+        return true;
     }
 
-    @Override
-    public void handlePaymentIntentFailed(Event event) {
-        PaymentIntent pi = deserializeOrNull(event, PaymentIntent.class);
-        if (pi == null) return;
+    private void recordChargeId(PaymentRef payment, String paymentIntentId, String chargeId) {
+        int updated = companyPaymentRepository.fillPaymentTransactionId(
+                payment.id(), payment.purchasedAt(), SUCCESSFUL, paymentIntentId, chargeId);
+        if (updated == 0) return;
 
-        companyPaymentRepository.findByStripePaymentIntentId(pi.getId()).ifPresent(entity -> {
-            entity.setStatus(FAILED);
+        log.info("method=recordChargeId, message=Stored charge id on settled payment, paymentId={}, chargeId={}", payment.id(), chargeId);
+        readCache.evictAfterCommit(payment.id());
+    }
 
-            companyPaymentRepository.save(entity);
-        });
+    private void notifySuccessfulSubscriptionPaid(PaymentRef payment, TransactionStatus status) {
+        if (payment.companyId() == null) {
+            log.warn("method=notifySubscriptionService, message=No companyId linked to payment, skipping notification, paymentId={}", payment.id());
+            return;
+        }
+
+        // Written in the webhook transaction; the outbox relay publishes it to Kafka after commit.
+        log.info("method=notifySubscriptionService, message=Queueing subscription paid notification, companyId={}, paymentId={}, subscriptionId={}",
+                payment.companyId(), payment.id(), payment.subscriptionId());
+
+        subscriptionPaidOutbox.enqueue(
+                payment.companyId(),
+                payment.id(),
+                status.toString()
+        );
     }
 
     private CheckoutSessionInfo extractCheckoutSessionInfo(Event event, String payload) {
-        // First try Stripe's object deserializer.
-        Session session = deserializeOrNull(event, Session.class);
-        if (session != null) {
-            String paymentIdFromMetadata = null;
-            Map<String, String> metadata = session.getMetadata();
-            if (metadata != null) {
-                paymentIdFromMetadata = metadata.get("paymentId");
+        CheckoutSessionInfo info = payloadExtractor.extractCheckoutSessionInfo(payload);
+        if (info != null) return info;
+
+        if (sdkDeserializerFallback) {
+            Session session = deserializeOrNull(event, Session.class);
+            if (session != null) {
+                String paymentIdFromMetadata = null;
+                Map<String, String> metadata = session.getMetadata();
+                if (metadata != null) {
+                    paymentIdFromMetadata = metadata.get("paymentId");
+                }
+
+                return new CheckoutSessionInfo(
+                        session.getId(),
+                        session.getPaymentStatus(),
+                        session.getPaymentIntent(),
+                        session.getClientReferenceId(),
+                        paymentIdFromMetadata
+                );
             }
-
-            return new CheckoutSessionInfo(
-                    session.getId(),
-                    session.getPaymentStatus(),
-                    session.getPaymentIntent(),
-                    session.getClientReferenceId(),
-                    paymentIdFromMetadata
-            );
         }
 
-        // Fallback: parse raw JSON payload (works even when Stripe SDK cannot deserialize).
-        try {
-            JsonNode root = objectMapper.readTree(payload);
-            JsonNode obj = root.path("data").path("object");
-            if (obj.isMissingNode() || obj.isNull()) {
-                log.warn("method=extractCheckoutSessionInfo, message=Missing data.object in Stripe payload for type={}", event.getType());
-                return null;
-            }
+        log.warn("method=extractCheckoutSessionInfo, message=Missing data.object in Stripe payload for type={}", event.getType());
+        return null;
+    }
 
-            String sessionId = textOrNull(obj.path("id"));
-            String paymentStatus = textOrNull(obj.path("payment_status"));
-            String paymentIntentId = textOrNull(obj.path("payment_intent"));
-            String clientReferenceId = textOrNull(obj.path("client_reference_id"));
+    private PaymentIntentInfo extractPaymentIntentInfo(Event event, String payload) {
+        PaymentIntentInfo info = payloadExtractor.extractPaymentIntentInfo(payload);
+        if (info != null && info.paymentIntentId() != null) return info;
 
-            String paymentIdFromMetadata = null;
-            JsonNode metadataNode = obj.path("metadata");
-            if (metadataNode != null && metadataNode.isObject()) {
-                paymentIdFromMetadata = textOrNull(metadataNode.path("paymentId"));
+        if (sdkDeserializerFallback) {
+            PaymentIntent pi = deserializeOrNull(event, PaymentIntent.class);
+            if (pi != null) {
+                String chargeId = pi.getLatestCharge() != null ? String.valueOf(pi.getLatestCharge()) : null;
+                return new PaymentIntentInfo(pi.getId(), chargeId);
             }
-
-            return new CheckoutSessionInfo(sessionId, paymentStatus, paymentIntentId, clientReferenceId, paymentIdFromMetadata);
-        } catch (Exception e) {
-            log.warn("method=extractCheckoutSessionInfo, message=Failed to parse Stripe payload JSON, type={}, err={}", event.getType(), e.getMessage());
-            return null;
         }
+
+        log.warn("method=extractPaymentIntentInfo, message=Missing data.object in Stripe payload for type={}", event.getType());
+        return null;
     }
 
-    private CompanyPaymentEntity findByCheckoutSessionInfo(CheckoutSessionInfo info) {
-        if (info.sessionId() != null && !info.sessionId().isBlank()) {
-            var bySession = companyPaymentRepository.findByStripeCheckoutSessionId(info.sessionId());
-            if (bySession.isPresent()) return bySession.get();
+    // A cached ref is used as is: the conditional UPDATE addresses the row by id and purchasedAt, so
+    // a hit costs no read at all, and a ref for a deleted payment just updates nothing.
+    private PaymentRef findByCheckoutSessionInfo(CheckoutSessionInfo info) {
+        PaymentRef cached = lookupCache.findBySessionId(info.sessionId());
+        if (cached == null) {
+            cached = lookupCache.findByPaymentIntentId(info.paymentIntentId());
         }
+        if (cached != null) return cached;
+
+        String sessionId = blankToNull(info.sessionId());
+        String paymentIntentId = blankToNull(info.paymentIntentId());
+        UUID clientReferenceId = uuidOrNull(info.clientReferenceId());
+        UUID metadataPaymentId = uuidOrNull(info.paymentIdFromMetadata());
 
-        if (info.paymentIntentId() != null && !info.paymentIntentId().isBlank()) {
-            var byIntent = companyPaymentRepository.findByStripePaymentIntentId(info.paymentIntentId());
-            if (byIntent.isPresent()) return byIntent.get();
+        if (sessionId == null && paymentIntentId == null && clientReferenceId == null && metadataPaymentId == null) {
+            log.warn("method=findByCheckoutSessionInfo, message=Checkout session carries no usable identifier");
+            return null;
         }
 
-        if (info.clientReferenceId() != null && !info.clientReferenceId().isBlank()) {
-            try {
-                UUID id = UUID.fromString(info.clientReferenceId());
-                return companyPaymentRepository.findById(id).orElse(null);
+        List<CompanyPaymentEntity> candidates = companyPaymentRepository.findByAnyStripeIdentifier(
+                sessionId, paymentIntentId, clientReferenceId, metadataPaymentId);
 
-            } catch (IllegalArgumentException ignored) {
-                // ignore
-            }
+        // Same precedence as the identifiers were tried before: session, intent, client reference, metadata.
+        CompanyPaymentEntity match = candidates.stream()
+                .min(Comparator.comparingInt(candidate -> matchRank(candidate, sessionId, paymentIntentId, clientReferenceId)))
+                .orElse(null);
+
+        if (match == null) {
+            log.warn("method=findByCheckoutSessionInfo, message=No matching payment found for checkout session, sessionId={}, paymentIntentId={}", info.sessionId(), info.paymentIntentId());
+            return null;
         }
 
-        if (info.paymentIdFromMetadata() != null && !info.paymentIdFromMetadata().isBlank()) {
-            try {
-                UUID id = UUID.fromString(info.paymentIdFromMetadata());
-                return companyPaymentRepository.findById(id).orElse(null);
+        PaymentRef payment = refOf(match);
+        lookupCache.remember(match.getStripeCheckoutSessionId(), match.getStripePaymentIntentId(), payment);
+        return payment;
+    }
 
-            } catch (IllegalArgumentException ignored) {
-                // ignore
-            }
-        }
+    private Optional<PaymentRef> findByPaymentIntentId(String paymentIntentId) {
+        if (paymentIntentId == null || paymentIntentId.isBlank()) return Optional.empty();
 
-        log.warn("method=findByCheckoutSessionInfo, message=No matching payment found for checkout session, sessionId={}, paymentIntentId={}", info.sessionId(), info.paymentIntentId());
-        return null;
+        PaymentRef cached = lookupCache.findByPaymentIntentId(paymentIntentId);
+        if (cached != null) return Optional.of(cached);
+
+        return companyPaymentRepository.findByStripePaymentIntentId(paymentIntentId).map(entity -> {
+            PaymentRef payment = refOf(entity);
+            lookupCache.remember(entity.getStripeCheckoutSessionId(), paymentIntentId, payment);
+            return payment;
+        });
+    }
+
+    private static PaymentRef refOf(CompanyPaymentEntity entity) {
+        return new PaymentRef(entity.getId(), entity.getPurchasedAt(), entity.getCompanyId(), entity.getSubscriptionId());
     }
 
-    private String textOrNull(JsonNode node) {
-        if (node == null || node.isMissingNode() || node.isNull()) return null;
-        String val = node.asText(null);
-        return (val == null || val.isBlank()) ? null : val;
+    private int matchRank(CompanyPaymentEntity candidate, String sessionId, String paymentIntentId, UUID clientReferenceId) {
+        if (sessionId != null && sessionId.equals(candidate.getStripeCheckoutSessionId())) return 0;
+        if (paymentIntentId != null && paymentIntentId.equals(candidate.getStripePaymentIntentId())) return 1;
+        if (clientReferenceId != null && clientReferenceId.equals(candidate.getId())) return 2;
+        return 3;
+    }
+
+    private String blankToNull(String value) {
+        return (value == null || value.isBlank()) ? null : value;
+    }
+
+    private UUID uuidOrNull(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException ignored) {
+            return null;
+        }
     }
 
     private <T> T deserializeOrNull(Event event, Class<T> clazz) {
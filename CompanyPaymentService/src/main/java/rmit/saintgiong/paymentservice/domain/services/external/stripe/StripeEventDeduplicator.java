@@ -0,0 +1,157 @@
+package rmit.saintgiong.paymentservice.domain.services.external.stripe;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rmit.saintgiong.paymentservice.domain.repositories.StripeProcessedEventRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Two-tier dedupe store for Stripe event ids.
+ * Tier 1 is a bounded in-process cache of recently processed ids, tier 2 is the
+ * stripe_processed_events table, swept once entries are older than Stripe's retry window.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StripeEventDeduplicator {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final StripeProcessedEventRepository processedEventRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.webhook.dedupe.cacheSize:100000}")
+    private long cacheSize;
+
+    @Value("${stripe.webhook.dedupe.cacheTtlMinutes:60}")
+    private long cacheTtlMinutes;
+
+    @Value("${stripe.webhook.dedupe.retentionDays:30}")
+    private long retentionDays;
+
+    private Cache<String, Boolean> recentlyProcessed;
+    private Counter memoryHits;
+    private Counter databaseHits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        this.recentlyProcessed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .build();
+
+        this.memoryHits = meterRegistry.counter("stripe.webhook.dedupe.lookups", "tier", "memory", "result", "hit");
+        this.databaseHits = meterRegistry.counter("stripe.webhook.dedupe.lookups", "tier", "database", "result", "hit");
+        this.misses = meterRegistry.counter("stripe.webhook.dedupe.lookups", "tier", "database", "result", "miss");
+    }
+
+    /**
+     * Tier-1 only check on the raw payload, done after signature verification but before event
+     * deserialization. A hit means the event was already processed, so nothing is lost by
+     * acknowledging it without further work. Never call it on an unverified payload: it would let
+     * anyone replaying a known event id get a 200.
+     */
+    public boolean isRecentlySeen(String payload) {
+        String eventId = peekEventId(payload);
+        if (eventId == null || recentlyProcessed.getIfPresent(eventId) == null) {
+            return false;
+        }
+
+        memoryHits.increment();
+        return true;
+    }
+
+    // Full two-tier check for a verified event id.
+    public boolean isProcessed(String eventId) {
+        if (recentlyProcessed.getIfPresent(eventId) != null) {
+            memoryHits.increment();
+            return true;
+        }
+
+        if (processedEventRepository.existsById(eventId)) {
+            recentlyProcessed.put(eventId, Boolean.TRUE);
+            databaseHits.increment();
+            return true;
+        }
+
+        misses.increment();
+        return false;
+    }
+
+    /**
+     * Records the event as processed inside the caller's transaction.
+     * Returns false if another delivery already claimed it; the in-memory tier is only
+     * updated after commit so a rolled-back handler can still be retried.
+     */
+    public boolean claim(String eventId, String eventType) {
+        int inserted = processedEventRepository.insertIfAbsent(eventId, eventType, LocalDateTime.now());
+        if (inserted == 0) {
+            recentlyProcessed.put(eventId, Boolean.TRUE);
+            databaseHits.increment();
+            return false;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentlyProcessed.put(eventId, Boolean.TRUE);
+                }
+            });
+        } else {
+            recentlyProcessed.put(eventId, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${stripe.webhook.dedupe.sweepIntervalMs:3600000}")
+    public void sweepExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status -> processedEventRepository.deleteProcessedBefore(cutoff));
+
+        if (deleted != null && deleted > 0) {
+            log.info("method=sweepExpired, message=Removed expired processed Stripe events, count={}", deleted);
+        }
+    }
+
+    // Stripe puts the event id at the top level of the payload, so the scan stops long before data.object.
+    private String peekEventId(String payload) {
+        if (payload == null || payload.isBlank()) return null;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("id".equals(field) && value == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+        } catch (Exception e) {
+            log.debug("method=peekEventId, message=Unable to read event id from payload, err={}", e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,57 @@
+package rmit.saintgiong.paymentservice.domain.services.external.stripe;
+
+import com.stripe.model.Event;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import rmit.saintgiong.paymentapi.external.services.stripe.ExternalStripeCheckoutInterface;
+
+// Routes a verified Stripe event to the matching checkout handler.
+// Shared by the synchronous webhook path and the inbox workers.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StripeWebhookEventDispatcher {
+
+    private final ExternalStripeCheckoutInterface stripeCheckoutInterface;
+
+    private final StripeEventDeduplicator eventDeduplicator;
+
+    /**
+     * Runs the handler for the event unless the same event id was already processed.
+     * Must be called inside a transaction so the dedupe record commits with the handler's writes.
+     */
+    public boolean dispatchOnce(Event event, String payload) {
+        if (!eventDeduplicator.claim(event.getId(), event.getType())) {
+            log.info("method=dispatchOnce, message=Skipping duplicate Stripe event, type={}, id={}", event.getType(), event.getId());
+            return false;
+        }
+
+        dispatch(event, payload);
+        return true;
+    }
+
+    public void dispatch(Event event, String payload) {
+        switch (event.getType()) {
+            // Stripe Checkout events
+            case "checkout.session.completed" ->
+                    stripeCheckoutInterface.handleCheckoutSessionCompleted(event, payload);
+
+            case "checkout.session.async_payment_succeeded" ->
+                    stripeCheckoutInterface.handleCheckoutSessionAsyncSucceeded(event, payload);
+
+            case "checkout.session.async_payment_failed" ->
+                    stripeCheckoutInterface.handleCheckoutSessionAsyncFailed(event, payload);
+
+            // Fallback/legacy PaymentIntent flow
+            case "payment_intent.succeeded" ->
+                    stripeCheckoutInterface.handlePaymentIntentSucceeded(event, payload);
+
+            case "payment_intent.payment_failed" ->
+                    stripeCheckoutInterface.handlePaymentIntentFailed(event, payload);
+
+            default ->
+                    log.debug("method=dispatch, message=Unhandled event type: {}", event.getType());
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package rmit.saintgiong.paymentservice.domain.services.external.stripe;
+
+import com.stripe.model.Event;
+import com.stripe.net.ApiResource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import rmit.saintgiong.paymentapi.internal.common.type.WebhookInboxStatus;
+import rmit.saintgiong.paymentservice.domain.repositories.StripeWebhookInboxRepository;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.StripeWebhookInboxEntity;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable inbox for Stripe webhook events.
+ * The webhook endpoint only appends the verified raw event here and returns; a bounded
+ * worker pool drains the inbox and runs the checkout handlers outside of Stripe's request.
+ * Draining waits for each batch, so it polls on its own thread rather than the shared scheduler.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StripeWebhookInboxService {
+
+    private static final int MAX_ERROR_LENGTH = 1024;
+
+    private final StripeWebhookInboxRepository inboxRepository;
+
+    private final StripeWebhookEventDispatcher eventDispatcher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.webhook.inbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stripe.webhook.inbox.workers:4}")
+    private int workers;
+
+    @Value("${stripe.webhook.inbox.batchSize:50}")
+    private int batchSize;
+
+    @Value("${stripe.webhook.inbox.maxAttempts:10}")
+    private int maxAttempts;
+
+    @Value("${stripe.webhook.inbox.pollIntervalMs:200}")
+    private long pollIntervalMs;
+
+    @Value("${stripe.webhook.inbox.stuckTimeoutSeconds:300}")
+    private long stuckTimeoutSeconds;
+
+    // Stripe stops retrying after three days; the dedupe table keeps event ids for longer.
+    @Value("${stripe.webhook.inbox.retentionDays:7}")
+    private long retentionDays;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong oldestPendingAgeSeconds = new AtomicLong();
+
+    private ExecutorService workerPool;
+    private ScheduledExecutorService poller;
+    private Timer processingLag;
+    private Counter processedCounter;
+    private Counter retriedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workerPool = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "stripe-inbox-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("stripe.webhook.inbox.depth", queueDepth, AtomicLong::get)
+                .description("Stripe webhook events waiting in the inbox")
+                .register(meterRegistry);
+        Gauge.builder("stripe.webhook.inbox.oldest.age", oldestPendingAgeSeconds, AtomicLong::get)
+                .description("Age in seconds of the oldest pending inbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.processingLag = Timer.builder("stripe.webhook.inbox.lag")
+                .description("Time between receiving a Stripe event and finishing its processing")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.processedCounter = meterRegistry.counter("stripe.webhook.inbox.events", "outcome", "processed");
+        this.retriedCounter = meterRegistry.counter("stripe.webhook.inbox.events", "outcome", "retried");
+        this.failedCounter = meterRegistry.counter("stripe.webhook.inbox.events", "outcome", "failed");
+
+        log.info("method=init, message=Stripe webhook inbox {}, workers={}, batchSize={}",
+                enabled ? "enabled" : "disabled", workers, batchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPolling() {
+        if (!enabled) return;
+
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stripe-inbox-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::drainQuietly, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (poller != null) poller.shutdownNow();
+        workerPool.shutdown();
+        if (!workerPool.awaitTermination(10, TimeUnit.SECONDS)) {
+            workerPool.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stores a verified Stripe event for asynchronous processing.
+     *
+     * @return false when the event id is already in the inbox (Stripe redelivery)
+     */
+    public boolean append(Event event, String payload) {
+        int inserted = inboxRepository.insertIfAbsent(
+                UUID.randomUUID(),
+                event.getId(),
+                event.getType(),
+                payload,
+                LocalDateTime.now()
+        );
+
+        if (inserted == 0) {
+            log.info("method=append, message=Stripe event already in inbox, type={}, id={}", event.getType(), event.getId());
+            return false;
+        }
+
+        return true;
+    }
+
+    public void drain() {
+        if (!enabled) return;
+
+        List<StripeWebhookInboxEntity> batch = claimBatch();
+        if (!batch.isEmpty()) {
+            CompletableFuture<?>[] tasks = batch.stream()
+                    .map(entry -> CompletableFuture.runAsync(() -> process(entry), workerPool))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(tasks).join();
+        }
+    }
+
+    // An exception escaping a scheduleWithFixedDelay task would cancel every later run.
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.error("method=drain, message=Inbox drain failed, will retry on next poll, err={}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stripe.webhook.inbox.stuckCheckIntervalMs:60000}")
+    public void releaseStuckEvents() {
+        if (!enabled) return;
+
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(stuckTimeoutSeconds);
+        Integer released = transactionTemplate.execute(status -> inboxRepository.releaseStuck(
+                WebhookInboxStatus.PROCESSING, WebhookInboxStatus.PENDING, cutoff));
+
+        if (released != null && released > 0) {
+            log.warn("method=releaseStuckEvents, message=Released stuck inbox events, count={}", released);
+        }
+    }
+
+    // Processed rows hold the full raw payload; drop them once Stripe can no longer redeliver.
+    @Scheduled(fixedDelayString = "${stripe.webhook.inbox.sweepIntervalMs:3600000}")
+    public void sweepProcessed() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status -> inboxRepository.deleteByStatusAndProcessedAtBefore(
+                WebhookInboxStatus.PROCESSED, cutoff));
+
+        if (deleted != null && deleted > 0) {
+            log.info("method=sweepProcessed, message=Removed processed inbox events, count={}", deleted);
+        }
+    }
+
+    private List<StripeWebhookInboxEntity> claimBatch() {
+        List<StripeWebhookInboxEntity> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<StripeWebhookInboxEntity> locked = inboxRepository.lockNextBatch(now, batchSize);
+            if (!locked.isEmpty()) {
+                inboxRepository.markLocked(
+                        locked.stream().map(StripeWebhookInboxEntity::getId).toList(),
+                        WebhookInboxStatus.PROCESSING,
+                        now
+                );
+            }
+            return locked;
+        });
+        return batch == null ? List.of() : batch;
+    }
+
+    private void process(StripeWebhookInboxEntity entry) {
+        try {
+            Event event = ApiResource.GSON.fromJson(entry.getPayload(), Event.class);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                eventDispatcher.dispatchOnce(event, entry.getPayload());
+                inboxRepository.markProcessed(entry.getId(), WebhookInboxStatus.PROCESSED, LocalDateTime.now());
+            });
+
+            processedCounter.increment();
+            processingLag.record(Duration.between(entry.getReceivedAt(), LocalDateTime.now()));
+        } catch (Exception e) {
+            recordFailure(entry, e);
+        }
+    }
+
+    private void recordFailure(StripeWebhookInboxEntity entry, Exception e) {
+        int attempt = entry.getAttempts() + 1;
+        boolean exhausted = attempt >= maxAttempts;
+
+        // Exponential backoff capped at 10 minutes between attempts.
+        long delaySeconds = Math.min(600L, 1L << Math.min(attempt, 10));
+        String error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+
+        String lastError = error;
+        transactionTemplate.executeWithoutResult(status -> inboxRepository.markAttemptFailed(
+                entry.getId(),
+                exhausted ? WebhookInboxStatus.FAILED : WebhookInboxStatus.PENDING,
+                LocalDateTime.now().plusSeconds(delaySeconds),
+                lastError
+        ));
+
+        if (exhausted) {
+            failedCounter.increment();
+            log.error("method=process, message=Stripe event failed permanently, type={}, id={}, attempts={}, err={}",
+                    entry.getEventType(), entry.getEventId(), attempt, error, e);
+        } else {
+            retriedCounter.increment();
+            log.warn("method=process, message=Stripe event failed, will retry, type={}, id={}, attempt={}, retryInSeconds={}, err={}",
+                    entry.getEventType(), entry.getEventId(), attempt, delaySeconds, error);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stripe.webhook.inbox.metricsIntervalMs:5000}")
+    public void refreshDepthMetrics() {
+        if (!enabled) return;
+
+        queueDepth.set(inboxRepository.countByStatus(WebhookInboxStatus.PENDING));
+
+        LocalDateTime oldest = inboxRepository.findOldestReceivedAt(WebhookInboxStatus.PENDING);
+        oldestPendingAgeSeconds.set(oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toSeconds());
+    }
+}
@@ -2,13 +2,13 @@ package rmit.saintgiong.paymentservice.domain.services.external.stripe;
 
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.model.Event;
+import com.stripe.net.ApiResource;
 import com.stripe.net.Webhook;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import rmit.saintgiong.paymentapi.external.services.stripe.ExternalStripeCheckoutInterface;
 import rmit.saintgiong.paymentapi.external.services.stripe.ExternalStripeWebhookInterface;
 
 @Service
@@ -16,7 +16,11 @@ import rmit.saintgiong.paymentapi.external.services.stripe.ExternalStripeWebhook
 @Slf4j
 public class StripeWebhookService implements ExternalStripeWebhookInterface {
 
-    private final ExternalStripeCheckoutInterface stripeCheckoutInterface;
+    private final StripeWebhookEventDispatcher eventDispatcher;
+
+    private final StripeWebhookInboxService inboxService;
+
+    private final StripeEventDeduplicator eventDeduplicator;
 
     @Value("${stripe.webhookSecret:}")
     private String webhookSecret;
@@ -26,32 +30,33 @@ public class StripeWebhookService implements ExternalStripeWebhookInterface {
     public void handleWebhook(String payload, String sigHeader) throws SignatureVerificationException {
         validateWebhookConfiguration(sigHeader);
 
-        Event event = constructAndVerifyEvent(payload, sigHeader);
-
-        log.info("method=handleWebhook, message=Received Stripe event, type={}, id={}",
-                event.getType(), event.getId());
-
-        switch (event.getType()) {
-            // Stripe Checkout events
-            case "checkout.session.completed" ->
-                    stripeCheckoutInterface.handleCheckoutSessionCompleted(event, payload);
+        // Only a signed request may be acknowledged; the HMAC check is cheap next to parsing the event.
+        verifySignature(payload, sigHeader);
 
-            case "checkout.session.async_payment_succeeded" ->
-                    stripeCheckoutInterface.handleCheckoutSessionAsyncSucceeded(event, payload);
+        // Redeliveries of recently processed events are acknowledged before any parsing or DB access.
+        if (eventDeduplicator.isRecentlySeen(payload)) {
+            log.info("method=handleWebhook, message=Duplicate Stripe event acknowledged from cache");
+            return;
+        }
 
-            case "checkout.session.async_payment_failed" ->
-                    stripeCheckoutInterface.handleCheckoutSessionAsyncFailed(event, payload);
+        Event event = ApiResource.GSON.fromJson(payload, Event.class);
 
-            // Fallback/legacy PaymentIntent flow
-            case "payment_intent.succeeded" ->
-                    stripeCheckoutInterface.handlePaymentIntentSucceeded(event);
+        log.info("method=handleWebhook, message=Received Stripe event, type={}, id={}",
+                event.getType(), event.getId());
 
-            case "payment_intent.payment_failed" ->
-                    stripeCheckoutInterface.handlePaymentIntentFailed(event);
+        if (eventDeduplicator.isProcessed(event.getId())) {
+            log.info("method=handleWebhook, message=Duplicate Stripe event acknowledged, type={}, id={}",
+                    event.getType(), event.getId());
+            return;
+        }
 
-            default ->
-                    log.debug("method=routeEventToHandler, message=Unhandled event type: {}", event.getType());
+        if (inboxService.isEnabled()) {
+            // Acknowledge Stripe right away; the inbox workers run the handlers.
+            inboxService.append(event, payload);
+            return;
         }
+
+        eventDispatcher.dispatchOnce(event, payload);
     }
 
     private void validateWebhookConfiguration(String sigHeader) {
@@ -65,11 +70,11 @@ public class StripeWebhookService implements ExternalStripeWebhookInterface {
         }
     }
 
-    private Event constructAndVerifyEvent(String payload, String sigHeader) throws SignatureVerificationException {
+    private void verifySignature(String payload, String sigHeader) throws SignatureVerificationException {
         try {
-            return Webhook.constructEvent(payload, sigHeader, webhookSecret);
+            Webhook.Signature.verifyHeader(payload, sigHeader, webhookSecret, Webhook.DEFAULT_TOLERANCE);
         } catch (SignatureVerificationException e) {
-            log.warn("method=constructAndVerifyEvent, message=Invalid Stripe signature: {}", e.getMessage());
+            log.warn("method=verifySignature, message=Invalid Stripe signature: {}", e.getMessage());
             throw new SignatureVerificationException(
                     "Invalid webhook signature",
                     sigHeader
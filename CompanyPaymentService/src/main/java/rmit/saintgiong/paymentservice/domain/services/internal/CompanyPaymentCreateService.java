@@ -1,22 +1,38 @@
 package rmit.saintgiong.paymentservice.domain.services.internal;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import rmit.saintgiong.paymentapi.internal.common.dto.request.CreateCompanyPaymentRequestDto;
 import rmit.saintgiong.paymentapi.internal.common.dto.response.CreateCompanyPaymentResponseDto;
 import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
 import rmit.saintgiong.paymentapi.internal.services.CreateCompanyPaymentInterface;
+import rmit.saintgiong.paymentservice.common.exception.domain.DomainException;
+import rmit.saintgiong.paymentservice.common.utils.UuidV7;
 import rmit.saintgiong.paymentservice.domain.repositories.CompanyPaymentRepository;
 import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
+import rmit.saintgiong.paymentservice.stripe.service.StripePaymentLookupCache;
 import rmit.saintgiong.paymentservice.stripe.service.StripePaymentService;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static rmit.saintgiong.paymentapi.internal.common.type.DomainCode.INVALID_BUSINESS_LOGIC;
 
 @Service
 @RequiredArgsConstructor
@@ -27,19 +43,95 @@ public class CompanyPaymentCreateService implements CreateCompanyPaymentInterfac
 
     private final StripePaymentService stripePaymentService;
 
+    private final StripePaymentLookupCache lookupCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, InFlightCreate> inFlight = new ConcurrentHashMap<>();
+
     @Value("${stripe.checkout.successUrl:}")
     private String successUrl;
 
     @Value("${stripe.checkout.cancelUrl:}")
     private String cancelUrl;
 
+    // An open session is only handed out again if the payer still has this long to complete it.
+    @Value("${payment.checkout.sessionReuseMinRemainingSeconds:600}")
+    private long sessionReuseMinRemainingSeconds;
+
+    // The leader's pending result and the amount and currency it was started with.
+    private record InFlightCreate(CompletableFuture<CreateCompanyPaymentResponseDto> result, Double amount, String currency) {
+    }
+
     @Override
-    @Transactional
     public CreateCompanyPaymentResponseDto createCompanyPayment(CreateCompanyPaymentRequestDto req) {
-        log.info("method=createCompanyPayment, message=Start creating company payment (Stripe Checkout), req={}", req);
+        return createCompanyPayment(req, null);
+    }
+
+    @Override
+    public CreateCompanyPaymentResponseDto createCompanyPayment(CreateCompanyPaymentRequestDto req, String idempotencyKey) {
+        log.info("method=createCompanyPayment, message=Start creating company payment (Stripe Checkout), req={}, idempotencyKey={}", req, idempotencyKey);
 
         UUID companyId = UUID.fromString(req.getCompanyId());
-        UUID paymentId = UUID.randomUUID();
+        String key = (idempotencyKey == null || idempotencyKey.isBlank()) ? null : idempotencyKey.trim();
+        String flightKey = key != null
+                ? companyId + "|key|" + key
+                : companyId + "|" + req.getAmount() + "|" + req.getCurrency();
+
+        // Single-flight: identical requests arriving while one is in progress share its result.
+        InFlightCreate flight = new InFlightCreate(new CompletableFuture<>(), req.getAmount(), req.getCurrency());
+        InFlightCreate leader = inFlight.putIfAbsent(flightKey, flight);
+        if (leader != null) {
+            // Unkeyed flights already match on amount and currency; a shared Idempotency-Key does not.
+            if (key != null) {
+                requireSameRequest(leader.amount(), leader.currency(), req, companyId, key);
+            }
+            createOutcome("coalesced");
+            log.info("method=createCompanyPayment, message=Joining in-flight create, companyId={}", companyId);
+            return awaitLeader(leader.result());
+        }
+
+        try {
+            CreateCompanyPaymentResponseDto response = createOrReuse(req, companyId, key);
+            flight.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            flight.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private CreateCompanyPaymentResponseDto createOrReuse(CreateCompanyPaymentRequestDto req, UUID companyId, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            Optional<CompanyPaymentEntity> replay = repository.findByCompanyIdAndIdempotencyKey(companyId, idempotencyKey);
+            if (replay.isPresent()) {
+                requireSameRequest(replay.get().getAmount(), replay.get().getCurrency(), req, companyId, idempotencyKey);
+                createOutcome("idempotent_replay");
+                log.info("method=createCompanyPayment, message=Returning payment for repeated idempotency key, id={}", replay.get().getId());
+                return toResponse(replay.get());
+            }
+        }
+
+        Optional<CompanyPaymentEntity> openCheckout = repository
+                .findFirstByCompanyIdAndStatusAndAmountAndCurrencyAndCheckoutExpiresAtAfterOrderByPurchasedAtDesc(
+                        companyId,
+                        TransactionStatus.PENDING,
+                        req.getAmount(),
+                        req.getCurrency(),
+                        LocalDateTime.now().plusSeconds(sessionReuseMinRemainingSeconds)
+                );
+        if (openCheckout.isPresent() && openCheckout.get().getCheckoutUrl() != null) {
+            createOutcome("session_reused");
+            log.info("method=createCompanyPayment, message=Reusing open checkout session, id={}, checkoutSessionId={}",
+                    openCheckout.get().getId(), openCheckout.get().getStripeCheckoutSessionId());
+            return toResponse(openCheckout.get());
+        }
+
+        UUID paymentId = UuidV7.generate();
 
         CompanyPaymentEntity entity = CompanyPaymentEntity.builder()
                 .id(paymentId)
@@ -50,36 +142,108 @@ public class CompanyPaymentCreateService implements CreateCompanyPaymentInterfac
                 .method(req.getMethod())
                 .purchasedAt(LocalDateTime.now())
                 .status(TransactionStatus.PENDING)
+                .idempotencyKey(idempotencyKey)
                 .build();
 
+        // Stripe replays a keyed request only when every parameter matches, so a keyed create sends
+        // nothing that differs per attempt: no payment id, which webhooks do without since the row
+        // stores the session id. A retry that reaches Stripe again then gets the first session back.
         Map<String, String> metadata = new HashMap<>();
-        metadata.put("paymentId", paymentId.toString());
         metadata.put("companyId", companyId.toString());
+        if (idempotencyKey == null) {
+            metadata.put("paymentId", paymentId.toString());
+        } else {
+            metadata.put("idempotencyKey", idempotencyKey);
+        }
 
+        // Stripe keys are account-wide, so scope the client's key to the company.
         StripePaymentService.CheckoutSessionResult session = stripePaymentService.createCheckoutSession(
                 req.getAmount(),
                 req.getCurrency(),
                 successUrl,
                 cancelUrl,
                 "Company payment",
-                paymentId.toString(),
-                metadata
+                idempotencyKey == null ? paymentId.toString() : null,
+                metadata,
+                idempotencyKey != null ? "company-payment:" + companyId + ":" + idempotencyKey : null
         );
 
         entity.setStripeCheckoutSessionId(session.getId());
+        entity.setCheckoutUrl(session.getUrl());
+        if (session.getExpiresAt() != null) {
+            entity.setCheckoutExpiresAt(LocalDateTime.ofInstant(Instant.ofEpochSecond(session.getExpiresAt()), ZoneId.systemDefault()));
+        }
         if (session.getPaymentIntentId() != null && !session.getPaymentIntentId().isBlank()) {
             entity.setStripePaymentIntentId(session.getPaymentIntentId());
         }
 
-        CompanyPaymentEntity saved = repository.save(entity);
+        CompanyPaymentEntity saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                CompanyPaymentEntity persisted = repository.save(entity);
+                rememberStripeIdentifiersAfterCommit(persisted);
+                return persisted;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance stored the same idempotency key first. Both sent Stripe the same key and
+            // the same parameters, so they hold the same session.
+            if (idempotencyKey == null) throw e;
+            CompanyPaymentEntity winner = repository.findByCompanyIdAndIdempotencyKey(companyId, idempotencyKey)
+                    .orElseThrow(() -> e);
+            requireSameRequest(winner.getAmount(), winner.getCurrency(), req, companyId, idempotencyKey);
+            createOutcome("idempotent_replay");
+            return toResponse(winner);
+        }
 
+        createOutcome("created");
         log.info("method=createCompanyPayment, message=Created company payment PENDING, id={}, checkoutSessionId={}", saved.getId(), saved.getStripeCheckoutSessionId());
 
+        return toResponse(saved);
+    }
+
+    // A key names one request; reusing it for a different charge is a client bug, not a replay.
+    private void requireSameRequest(Double amount, String currency, CreateCompanyPaymentRequestDto req, UUID companyId, String idempotencyKey) {
+        boolean sameAmount = Objects.equals(amount, req.getAmount());
+        boolean sameCurrency = currency != null && currency.equalsIgnoreCase(req.getCurrency());
+        if (!sameAmount || !sameCurrency) {
+            createOutcome("idempotency_mismatch");
+            log.warn("method=createCompanyPayment, message=Idempotency key reused with different parameters, companyId={}, idempotencyKey={}",
+                    companyId, idempotencyKey);
+            throw new DomainException(INVALID_BUSINESS_LOGIC,
+                    "Idempotency-Key " + idempotencyKey + " was already used with a different amount or currency");
+        }
+    }
+
+    private CreateCompanyPaymentResponseDto awaitLeader(CompletableFuture<CreateCompanyPaymentResponseDto> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private CreateCompanyPaymentResponseDto toResponse(CompanyPaymentEntity entity) {
         return CreateCompanyPaymentResponseDto.builder()
-                .id(String.valueOf(saved.getId()))
-                .status(saved.getStatus())
-                .stripeCheckoutSessionId(saved.getStripeCheckoutSessionId())
-                .checkoutUrl(session.getUrl())
+                .id(String.valueOf(entity.getId()))
+                .status(entity.getStatus())
+                .stripeCheckoutSessionId(entity.getStripeCheckoutSessionId())
+                .checkoutUrl(entity.getCheckoutUrl())
                 .build();
     }
+
+    private void createOutcome(String outcome) {
+        meterRegistry.counter("payment.checkout.create", "outcome", outcome).increment();
+    }
+
+    // Lets the checkout webhooks update this payment without searching for it by Stripe ids.
+    private void rememberStripeIdentifiersAfterCommit(CompanyPaymentEntity saved) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lookupCache.remember(saved.getStripeCheckoutSessionId(), saved.getStripePaymentIntentId(),
+                        new StripePaymentLookupCache.PaymentRef(saved.getId(), saved.getPurchasedAt(), saved.getCompanyId(), saved.getSubscriptionId()));
+            }
+        });
+    }
 }
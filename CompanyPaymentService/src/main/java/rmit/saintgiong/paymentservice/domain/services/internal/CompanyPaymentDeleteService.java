@@ -16,6 +16,8 @@ public class CompanyPaymentDeleteService implements DeleteCompanyPaymentInterfac
 
     private final CompanyPaymentRepository repository;
 
+    private final CompanyPaymentReadCache readCache;
+
     @Override
     @Transactional
     public void deleteCompanyPayment(String id) {
@@ -23,6 +25,7 @@ public class CompanyPaymentDeleteService implements DeleteCompanyPaymentInterfac
 
         UUID uuid = UUID.fromString(id);
         repository.deleteById(uuid);
+        readCache.evictAfterCommit(uuid);
 
         log.info("method=deleteCompanyPayment, message=Successfully deleted payment, id={}", id);
     }
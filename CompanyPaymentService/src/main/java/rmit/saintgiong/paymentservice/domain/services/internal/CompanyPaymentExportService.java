@@ -0,0 +1,143 @@
+package rmit.saintgiong.paymentservice.domain.services.internal;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import rmit.saintgiong.paymentapi.internal.common.dto.request.QueryCompanyPaymentFilterDto;
+import rmit.saintgiong.paymentapi.internal.common.type.ExportFormat;
+import rmit.saintgiong.paymentapi.internal.services.ExportCompanyPaymentInterface;
+import rmit.saintgiong.paymentservice.domain.repositories.CompanyPaymentRepository;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes payments to the response as they are read from the database cursor.
+ * Each row is detached once written, so heap use does not grow with the export size, and a slow
+ * client simply blocks the blocking writes (and therefore the cursor) until it catches up.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CompanyPaymentExportService implements ExportCompanyPaymentInterface {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String CSV_HEADER = "id,companyId,amount,currency,status,method,paymentTransactionId,createdAt";
+
+    private final CompanyPaymentRepository repository;
+
+    private final MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${payment.export.flushEveryRows:500}")
+    private int flushEveryRows;
+
+    // Read-only, so it streams from the replica when one is set; see payment.datasource.replica in
+    // application.yml for the standby setting long exports need to avoid recovery-conflict cancels.
+    @Override
+    @Transactional(readOnly = true)
+    public long exportCompanyPayments(QueryCompanyPaymentFilterDto filter, ExportFormat format, OutputStream out) throws IOException {
+        log.info("method=exportCompanyPayments, message=Start exporting payments, format={}, filter={}", format, filter);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long count = 0;
+
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        try (Stream<CompanyPaymentEntity> rows = repository.streamForExport(filter)) {
+            Iterator<CompanyPaymentEntity> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                CompanyPaymentEntity row = iterator.next();
+                if (format == ExportFormat.CSV) {
+                    writeCsv(writer, row);
+                } else {
+                    writeJson(writer, row);
+                }
+                entityManager.detach(row);
+
+                if (++count % flushEveryRows == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+
+        meterRegistry.counter("payment.export.rows", "format", format.name().toLowerCase()).increment(count);
+        log.info("method=exportCompanyPayments, message=Finished exporting payments, format={}, count={}", format, count);
+        return count;
+    }
+
+    private void writeJson(Writer writer, CompanyPaymentEntity row) throws IOException {
+        JsonGenerator json = JSON_FACTORY.createGenerator(writer);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.writeStartObject();
+        json.writeStringField("id", String.valueOf(row.getId()));
+        json.writeStringField("companyId", String.valueOf(row.getCompanyId()));
+        if (row.getAmount() != null) {
+            json.writeNumberField("amount", row.getAmount());
+        } else {
+            json.writeNullField("amount");
+        }
+        json.writeStringField("currency", row.getCurrency());
+        json.writeStringField("status", row.getStatus() == null ? null : row.getStatus().name());
+        json.writeStringField("method", row.getMethod() == null ? null : row.getMethod().name());
+        json.writeStringField("paymentTransactionId", row.getPaymentTransactionId());
+        json.writeStringField("createdAt", createdAt(row));
+        json.writeEndObject();
+        json.flush();
+        writer.write('\n');
+    }
+
+    private void writeCsv(Writer writer, CompanyPaymentEntity row) throws IOException {
+        writer.write(String.join(",",
+                csv(String.valueOf(row.getId())),
+                csv(String.valueOf(row.getCompanyId())),
+                row.getAmount() == null ? "" : row.getAmount().toString(),
+                csv(row.getCurrency()),
+                csv(row.getStatus() == null ? null : row.getStatus().name()),
+                csv(row.getMethod() == null ? null : row.getMethod().name()),
+                csv(row.getPaymentTransactionId()),
+                csv(createdAt(row))));
+        writer.write('\n');
+    }
+
+    private String createdAt(CompanyPaymentEntity row) {
+        return row.getPurchasedAt() == null
+                ? null
+                : row.getPurchasedAt().atZone(ZoneId.systemDefault()).toInstant().toString();
+    }
+
+    // Text cells that a spreadsheet would evaluate as a formula get a leading apostrophe (OWASP CSV
+    // injection); amounts are written unescaped so they stay numeric.
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
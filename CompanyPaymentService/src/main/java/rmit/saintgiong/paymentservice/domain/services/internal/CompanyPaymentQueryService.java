@@ -1,43 +1,72 @@
 package rmit.saintgiong.paymentservice.domain.services.internal;
 
-import lombok.AllArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import rmit.saintgiong.paymentapi.internal.common.dto.request.QueryCompanyPaymentFilterDto;
+import rmit.saintgiong.paymentapi.internal.common.dto.response.CompanyPaymentPageResponseDto;
 import rmit.saintgiong.paymentapi.internal.common.dto.response.QueryCompanyPaymentResponseDto;
 import rmit.saintgiong.paymentapi.internal.services.QueryCompanyPaymentInterface;
-import rmit.saintgiong.paymentservice.domain.mappers.CompanyPaymentMapper;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentCursor;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentView;
 import rmit.saintgiong.paymentservice.domain.repositories.CompanyPaymentRepository;
-import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
 import rmit.saintgiong.paymentservice.common.exception.domain.DomainException;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import static rmit.saintgiong.paymentapi.internal.common.type.DomainCode.RESOURCE_NOT_FOUND;
 
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Slf4j
 public class CompanyPaymentQueryService implements QueryCompanyPaymentInterface {
 
-    private final CompanyPaymentMapper mapper;
-
     private final CompanyPaymentRepository repository;
 
+    private final CompanyPaymentReadCache readCache;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @Value("${payment.query.defaultPageSize:50}")
+    private int defaultPageSize;
+
+    @Value("${payment.query.maxPageSize:200}")
+    private int maxPageSize;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    // No surrounding transaction: cache hits must not borrow a database connection. Misses load in
+    // a read-only transaction so they route to the replica when one is configured; those rows can
+    // lag a write that just evicted the key, so the cache keeps them only briefly.
     @Override
-    @Transactional(readOnly = true)
     public QueryCompanyPaymentResponseDto getCompanyPayment(String id) {
         log.info("method=getCompanyPayment, message=Start fetching payment, id={}", id);
 
         UUID uuid = UUID.fromString(id);
-        CompanyPaymentEntity existing = repository.findById(uuid)
-                .orElseThrow(() -> new DomainException(RESOURCE_NOT_FOUND, "Transaction not found"));
-
-        QueryCompanyPaymentResponseDto response = mapper.toQueryResponse(existing);
-        response.setId(String.valueOf(existing.getId()));
-        response.setCompanyId(String.valueOf(existing.getCompanyId()));
+        QueryCompanyPaymentResponseDto response = readCache.get(uuid, key -> {
+            Optional<CompanyPaymentView> fromReplica = readOnlyTransaction.execute(status -> repository.findViewById(key));
+            if (fromReplica != null && fromReplica.isPresent()) {
+                return new CompanyPaymentReadCache.Loaded(fromReplica.get().toResponse(), true);
+            }
+            // A payment created a moment ago may not have reached the replica yet.
+            return repository.findViewById(key)
+                    .map(view -> new CompanyPaymentReadCache.Loaded(view.toResponse(), false))
+                    .orElseThrow(() -> new DomainException(RESOURCE_NOT_FOUND, "Transaction not found"));
+        });
 
         log.info("method=getCompanyPayment, message=Successfully fetched payment, id={}", id);
         return response;
@@ -45,19 +74,38 @@ public class CompanyPaymentQueryService implements QueryCompanyPaymentInterface
 
     @Override
     @Transactional(readOnly = true)
-    public List<QueryCompanyPaymentResponseDto> listCompanyPayments() {
-        log.info("method=listCompanyPayments, message=Start listing payments");
-
-        List<QueryCompanyPaymentResponseDto> items = repository.findAll().stream()
-                .map(entity -> {
-                    QueryCompanyPaymentResponseDto dto = mapper.toQueryResponse(entity);
-                    dto.setId(String.valueOf(entity.getId()));
-                    dto.setCompanyId(String.valueOf(entity.getCompanyId()));
-                    return dto;
-                })
-                .collect(Collectors.toList());
-
-        log.info("method=listCompanyPayments, message=Successfully listed payments, count={}", items.size());
-        return items;
+    public CompanyPaymentPageResponseDto listCompanyPayments(QueryCompanyPaymentFilterDto filter, String cursor, Integer limit) {
+        log.info("method=listCompanyPayments, message=Start listing payments, filter={}, limit={}", filter, limit);
+
+        int pageSize = resolvePageSize(limit);
+        CompanyPaymentCursor after = CompanyPaymentCursor.decode(cursor);
+
+        // Fetch one extra row to learn whether another page exists without a count query.
+        List<CompanyPaymentView> rows = repository.findListingPage(filter, after, pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<CompanyPaymentView> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        List<QueryCompanyPaymentResponseDto> items = new ArrayList<>(page.size());
+        for (CompanyPaymentView row : page) {
+            items.add(row.toResponse());
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            CompanyPaymentView last = page.get(page.size() - 1);
+            nextCursor = new CompanyPaymentCursor(last.purchasedAt(), last.id()).encode();
+        }
+
+        log.info("method=listCompanyPayments, message=Successfully listed payments, count={}, hasMore={}", items.size(), hasMore);
+        return CompanyPaymentPageResponseDto.builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null || limit <= 0) return defaultPageSize;
+        return Math.min(limit, maxPageSize);
     }
 }
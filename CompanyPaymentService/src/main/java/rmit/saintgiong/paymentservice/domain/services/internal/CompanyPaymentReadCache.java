@@ -0,0 +1,143 @@
+package rmit.saintgiong.paymentservice.domain.services.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import rmit.saintgiong.paymentapi.internal.common.dto.response.QueryCompanyPaymentResponseDto;
+import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
+import rmit.saintgiong.paymentservice.domain.models.PaymentStatusTransitions;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for GET /{id}. Payments in a final status are kept long; PENDING and FAILED
+ * ones only briefly, because clients poll them while checkout completes or a failed payment is
+ * retried. Writers call {@link #evictAfterCommit};
+ * the eviction is also published on Redis so every instance drops its copy. A row read from the
+ * replica may predate a write that was just evicted, so it is only kept as long as a PENDING one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CompanyPaymentReadCache implements MessageListener {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payment.cache.maxSize:20000}")
+    private long maxSize;
+
+    @Value("${payment.cache.pendingTtlMs:2000}")
+    private long pendingTtlMs;
+
+    @Value("${payment.cache.terminalTtlSeconds:3600}")
+    private long terminalTtlSeconds;
+
+    @Value("${payment.cache.invalidationChannel:payment:cache:invalidate}")
+    private String invalidationChannel;
+
+    private Cache<UUID, Loaded> payments;
+
+    /**
+     * A payment as the loader read it. {@code maybeStale} is set when it came through the
+     * read-only route, which can lag the primary by up to the replica's maxLagMs.
+     */
+    public record Loaded(QueryCompanyPaymentResponseDto payment, boolean maybeStale) {
+    }
+
+    @PostConstruct
+    public void init() {
+        this.payments = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<UUID, Loaded>() {
+                    @Override
+                    public long expireAfterCreate(UUID key, Loaded value, long currentTime) {
+                        return ttlFor(value).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(UUID key, Loaded value, long currentTime, long currentDuration) {
+                        return ttlFor(value).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(UUID key, Loaded value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, payments, "companyPaymentRead");
+        listenerContainer.addMessageListener(this, new ChannelTopic(invalidationChannel));
+    }
+
+    // Loads run atomically per key, so concurrent polls for the same payment share one query.
+    public QueryCompanyPaymentResponseDto get(UUID id, Function<UUID, Loaded> loader) {
+        return payments.get(id, loader).payment();
+    }
+
+    // Evicts once the caller's transaction commits, so a concurrent read cannot re-cache the old row.
+    public void evictAfterCommit(UUID id) {
+        if (id == null) return;
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictEverywhere(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictEverywhere(id);
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            payments.invalidate(UUID.fromString(body));
+        } catch (IllegalArgumentException e) {
+            log.warn("method=onMessage, message=Ignoring malformed cache invalidation, body={}", body);
+        }
+    }
+
+    private void evictEverywhere(UUID id) {
+        payments.invalidate(id);
+        try {
+            redisTemplate.convertAndSend(invalidationChannel, id.toString());
+        } catch (RuntimeException e) {
+            // Other instances fall back to TTL expiry; PENDING entries are short-lived anyway.
+            log.warn("method=evictEverywhere, message=Failed to publish cache invalidation, id={}, err={}", id, e.getMessage());
+        }
+    }
+
+    private Duration ttlFor(Loaded loaded) {
+        TransactionStatus status = loaded.payment().getStatus();
+        if (loaded.maybeStale() || status == null || !PaymentStatusTransitions.isFinal(status)) {
+            return Duration.ofMillis(pendingTtlMs);
+        }
+        return Duration.ofSeconds(terminalTtlSeconds);
+    }
+}
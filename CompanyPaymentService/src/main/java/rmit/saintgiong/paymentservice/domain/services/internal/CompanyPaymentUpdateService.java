@@ -1,50 +1,105 @@
 package rmit.saintgiong.paymentservice.domain.services.internal;
 
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import rmit.saintgiong.paymentapi.internal.common.dto.request.CreateCompanyPaymentRequestDto;
+import rmit.saintgiong.paymentapi.internal.common.dto.request.PatchCompanyPaymentRequestDto;
 import rmit.saintgiong.paymentapi.internal.common.dto.response.QueryCompanyPaymentResponseDto;
-import rmit.saintgiong.paymentapi.internal.common.type.PaymentMethod;
 import rmit.saintgiong.paymentapi.internal.services.UpdateCompanyPaymentInterface;
-import rmit.saintgiong.paymentservice.domain.mappers.CompanyPaymentMapper;
+import rmit.saintgiong.paymentservice.common.exception.domain.DomainException;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentPatch;
+import rmit.saintgiong.paymentservice.domain.models.CompanyPaymentView;
 import rmit.saintgiong.paymentservice.domain.repositories.CompanyPaymentRepository;
-import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
+import static rmit.saintgiong.paymentapi.internal.common.type.DomainCode.INVALID_REQUEST_PARAMETER;
+import static rmit.saintgiong.paymentapi.internal.common.type.DomainCode.RESOURCE_NOT_FOUND;
+
 @Service
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Slf4j
 public class CompanyPaymentUpdateService implements UpdateCompanyPaymentInterface {
 
     private final CompanyPaymentRepository repository;
 
-    private final CompanyPaymentMapper mapper;
+    private final CompanyPaymentReadCache readCache;
+
+    @Value("${payment.patch.maxBulkSize:1000}")
+    private int maxBulkSize;
 
     @Override
     @Transactional
     public QueryCompanyPaymentResponseDto updateCompanyPayment(String id, CreateCompanyPaymentRequestDto req) {
         log.info("method=updateCompanyPayment, message=Start updating payment, id={}, req={}", id, req);
 
-        UUID uuid = UUID.fromString(id);
-        CompanyPaymentEntity existing = repository.findById(uuid)
-                .orElseThrow(() -> new IllegalArgumentException("Payment not found: " + id));
+        CompanyPaymentPatch patch = new CompanyPaymentPatch(
+                parseId(id),
+                req.getAmount(),
+                req.getCurrency(),
+                req.getMethod()
+        );
+
+        // Nothing to write: answer from the projection instead of issuing an UPDATE.
+        CompanyPaymentView updated = (patch.isEmpty() ? repository.findViewById(patch.id()) : repository.patch(patch))
+                .orElseThrow(() -> new DomainException(RESOURCE_NOT_FOUND, "Transaction not found"));
 
-        if (req.getAmount() != null) existing.setAmount(req.getAmount());
-        if (req.getCurrency() != null) existing.setCurrency(req.getCurrency());
-        if (req.getMethod() != null) {
-            existing.setMethod(PaymentMethod.valueOf(req.getMethod().name()));
+        if (!patch.isEmpty()) {
+            readCache.evictAfterCommit(updated.id());
         }
 
-        CompanyPaymentEntity saved = repository.save(existing);
+        log.info("method=updateCompanyPayment, message=Successfully updated payment, id={}", id);
+        return updated.toResponse();
+    }
+
+    @Override
+    @Transactional
+    public List<QueryCompanyPaymentResponseDto> updateCompanyPayments(List<PatchCompanyPaymentRequestDto> changes) {
+        if (changes == null || changes.isEmpty()) return List.of();
+        if (changes.size() > maxBulkSize) {
+            throw new DomainException(INVALID_REQUEST_PARAMETER, "at most " + maxBulkSize + " changes per request");
+        }
 
-        QueryCompanyPaymentResponseDto response = mapper.toQueryResponse(saved);
-        response.setId(String.valueOf(saved.getId()));
-        response.setCompanyId(String.valueOf(saved.getCompanyId()));
+        log.info("method=updateCompanyPayments, message=Start bulk updating payments, count={}", changes.size());
 
-        log.info("method=updateCompanyPayment, message=Successfully updated payment, id={}", id);
-        return response;
+        Set<UUID> requested = new LinkedHashSet<>();
+        List<CompanyPaymentPatch> patches = new ArrayList<>(changes.size());
+        for (PatchCompanyPaymentRequestDto change : changes) {
+            UUID id = parseId(change.getId());
+            if (!requested.add(id)) {
+                throw new DomainException(INVALID_REQUEST_PARAMETER, "duplicate id " + id);
+            }
+            patches.add(new CompanyPaymentPatch(id, change.getAmount(), change.getCurrency(), change.getMethod()));
+        }
+
+        List<CompanyPaymentView> updated = repository.patchAll(patches);
+
+        // Throwing rolls the whole statement back, so a batch either applies fully or not at all.
+        if (updated.size() != requested.size()) {
+            Set<UUID> missing = new HashSet<>(requested);
+            updated.forEach(view -> missing.remove(view.id()));
+            throw new DomainException(RESOURCE_NOT_FOUND, "Transactions not found " + missing);
+        }
+
+        updated.forEach(view -> readCache.evictAfterCommit(view.id()));
+
+        log.info("method=updateCompanyPayments, message=Successfully bulk updated payments, count={}", updated.size());
+        return updated.stream().map(CompanyPaymentView::toResponse).toList();
+    }
+
+    private UUID parseId(String id) {
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new DomainException(INVALID_REQUEST_PARAMETER, "id");
+        }
     }
 }
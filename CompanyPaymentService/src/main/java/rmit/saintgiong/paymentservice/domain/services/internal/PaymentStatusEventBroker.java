@@ -0,0 +1,174 @@
+package rmit.saintgiong.paymentservice.domain.services.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import rmit.saintgiong.paymentapi.internal.common.type.DomainCode;
+import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
+import rmit.saintgiong.paymentservice.common.exception.domain.DomainException;
+import rmit.saintgiong.paymentservice.domain.models.PaymentStatusTransitions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds SSE subscribers per payment and pushes status transitions to them.
+ * Emitters are async servlet responses, so an open stream costs a map entry, not a thread.
+ * Transitions are published on Redis so a webhook handled by one instance reaches
+ * subscribers connected to any other.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentStatusEventBroker implements MessageListener {
+
+    private static final String EVENT_NAME = "status";
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final MeterRegistry meterRegistry;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Map<UUID, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    @Value("${payment.events.channel:payment:status}")
+    private String channel;
+
+    @Value("${payment.events.emitterTimeoutMs:300000}")
+    private long emitterTimeoutMs;
+
+    @Value("${payment.events.maxSubscribers:10000}")
+    private int maxSubscribers;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+        Gauge.builder("payment.events.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open payment status SSE streams on this instance")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers a stream for {@code paymentId}. Register before reading the current status,
+     * so a transition racing with the subscription is delivered rather than lost.
+     */
+    public SseEmitter subscribe(UUID paymentId) {
+        if (subscriberCount.get() >= maxSubscribers) {
+            throw new DomainException(DomainCode.TOO_MANY_REQUESTS, "Too many open payment event streams");
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        subscribers.computeIfAbsent(paymentId, id -> ConcurrentHashMap.newKeySet()).add(emitter);
+        subscriberCount.incrementAndGet();
+
+        Runnable remove = () -> unsubscribe(paymentId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        return emitter;
+    }
+
+    // Sends the status to one stream and closes it once the status can no longer change; a FAILED
+    // payment stays open because the customer may still retry it to SUCCESSFUL.
+    public void send(UUID paymentId, SseEmitter emitter, TransactionStatus status) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(EVENT_NAME)
+                    .data(Map.of("id", paymentId.toString(), "status", status.name())));
+            if (PaymentStatusTransitions.isFinal(status)) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(paymentId, emitter);
+        }
+    }
+
+    public void publishAfterCommit(UUID paymentId, TransactionStatus status) {
+        if (paymentId == null || status == null) return;
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(paymentId, status);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(paymentId, status);
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3 || instanceId.equals(parts[0])) return;
+
+        try {
+            deliverLocally(UUID.fromString(parts[1]), TransactionStatus.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) {
+            log.warn("method=onMessage, message=Ignoring malformed payment status event, parts={}", (Object) parts);
+        }
+    }
+
+    // Comment frames keep idle proxies from closing the stream and flush out dead clients.
+    @Scheduled(fixedDelayString = "${payment.events.heartbeatIntervalMs:15000}")
+    public void heartbeat() {
+        subscribers.forEach((paymentId, emitters) -> emitters.forEach(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().comment("keep-alive"));
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(paymentId, emitter);
+            }
+        }));
+    }
+
+    private void publish(UUID paymentId, TransactionStatus status) {
+        deliverLocally(paymentId, status);
+        try {
+            redisTemplate.convertAndSend(channel, instanceId + "|" + paymentId + "|" + status.name());
+        } catch (RuntimeException e) {
+            log.warn("method=publish, message=Failed to fan out payment status event, paymentId={}, err={}", paymentId, e.getMessage());
+        }
+    }
+
+    private void deliverLocally(UUID paymentId, TransactionStatus status) {
+        Set<SseEmitter> emitters = subscribers.get(paymentId);
+        if (emitters == null) return;
+
+        for (SseEmitter emitter : emitters) {
+            send(paymentId, emitter, status);
+        }
+    }
+
+    public void unsubscribe(UUID paymentId, SseEmitter emitter) {
+        subscribers.computeIfPresent(paymentId, (id, emitters) -> {
+            if (emitters.remove(emitter)) {
+                subscriberCount.decrementAndGet();
+            }
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
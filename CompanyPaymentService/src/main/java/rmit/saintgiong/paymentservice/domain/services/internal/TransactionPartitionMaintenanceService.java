@@ -0,0 +1,197 @@
+package rmit.saintgiong.paymentservice.domain.services.internal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of {@code transactions} rolling: creates partitions ahead of the
+ * current month so inserts never land in the default partition, and moves partitions past the
+ * retention window out of the table into the archive schema. Rows that did reach the default
+ * partition (seed data, history older than the partitioning migration) are first moved into
+ * monthly partitions of their own, so they age out like everything else. Runs on one instance at
+ * a time, guarded by a Postgres advisory lock.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionPartitionMaintenanceService {
+
+    private static final String TABLE = "transactions";
+
+    private static final String DEFAULT_PARTITION = "transactions_default";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("transactions_p(\\d{4})_(\\d{2})");
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    // Arbitrary constant shared by all instances; only one of them maintains partitions per run.
+    private static final long ADVISORY_LOCK_KEY = 0x7472616e73L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payment.partitions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${payment.partitions.monthsAhead:3}")
+    private int monthsAhead;
+
+    @Value("${payment.partitions.retentionMonths:24}")
+    private int retentionMonths;
+
+    @Value("${payment.partitions.archiveSchema:transactions_archive}")
+    private String archiveSchema;
+
+    @Value("${payment.partitions.lockTimeoutMs:5000}")
+    private long lockTimeoutMs;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${payment.partitions.cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!enabled) return;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY);
+                if (!Boolean.TRUE.equals(locked)) {
+                    log.info("method=maintain, message=Partition maintenance running elsewhere, skipping");
+                    return;
+                }
+
+                // DETACH and CREATE ... PARTITION OF take a lock on the parent; give up rather than stall traffic.
+                jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+
+                YearMonth current = YearMonth.now();
+                // Before createAhead: a month still sitting in the default partition blocks CREATE ... PARTITION OF.
+                drainDefault();
+                createAhead(current);
+                archiveExpired(current);
+            });
+        } catch (DataAccessException e) {
+            meterRegistry.counter("payment.partitions.maintenance", "outcome", "failed").increment();
+            log.error("method=maintain, message=Partition maintenance failed, will retry on next run, err={}", e.getMessage());
+        }
+    }
+
+    private void createAhead(YearMonth current) {
+        List<String> existing = listPartitions();
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            String name = partitionName(month);
+            if (existing.contains(name)) continue;
+
+            LocalDate from = month.atDay(1);
+            LocalDate to = month.plusMonths(1).atDay(1);
+            jdbcTemplate.execute(String.format(
+                    "CREATE TABLE %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')", name, TABLE, from, to));
+
+            meterRegistry.counter("payment.partitions.maintenance", "outcome", "created").increment();
+            log.info("method=createAhead, message=Created transactions partition, partition={}, from={}, to={}", name, from, to);
+        }
+    }
+
+    private void drainDefault() {
+        List<LocalDate> months = jdbcTemplate.queryForList(
+                "SELECT DISTINCT date_trunc('month', purchased_at)::date FROM " + DEFAULT_PARTITION + " ORDER BY 1",
+                LocalDate.class);
+
+        for (LocalDate from : months) {
+            YearMonth month = YearMonth.from(from);
+            String name = partitionName(month);
+            LocalDate to = month.plusMonths(1).atDay(1);
+
+            // Postgres cannot create a partition over rows held by the default partition, so the rows
+            // are moved into a plain table first, which is then attached as the month's partition.
+            jdbcTemplate.execute(String.format("CREATE TABLE %s (LIKE %s INCLUDING DEFAULTS)", name, TABLE));
+            int moved = jdbcTemplate.update(String.format("""
+                    WITH moved AS (
+                        DELETE FROM %s WHERE purchased_at >= '%s' AND purchased_at < '%s' RETURNING *
+                    )
+                    INSERT INTO %s SELECT * FROM moved
+                    """, DEFAULT_PARTITION, from, to, name));
+            jdbcTemplate.execute(String.format(
+                    "ALTER TABLE %s ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')", TABLE, name, from, to));
+
+            // The DELETE fired the release trigger; claim the moved rows' idempotency keys again.
+            jdbcTemplate.update(String.format("""
+                    INSERT INTO transaction_idempotency_keys (company_id, idempotency_key, transaction_id)
+                    SELECT company_id, idempotency_key, id FROM %s WHERE idempotency_key IS NOT NULL
+                    ON CONFLICT DO NOTHING
+                    """, name));
+
+            meterRegistry.counter("payment.partitions.maintenance", "outcome", "drained").increment();
+            log.info("method=drainDefault, message=Moved default partition rows into a monthly partition, partition={}, rows={}",
+                    name, moved);
+        }
+    }
+
+    private void archiveExpired(YearMonth current) {
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+
+        for (String name : listPartitions()) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (!matcher.matches()) continue;
+
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(oldestKept)) continue;
+
+            // Archived rows keep their data but no longer need to reserve idempotency keys.
+            jdbcTemplate.update(String.format(
+                    "DELETE FROM transaction_idempotency_keys k USING %s p WHERE k.transaction_id = p.id", name));
+            jdbcTemplate.execute(String.format("ALTER TABLE %s DETACH PARTITION %s", TABLE, name));
+            if (archived(name)) {
+                // A late row for an already archived month was drained from the default partition.
+                jdbcTemplate.update(String.format("INSERT INTO %s.%s SELECT * FROM %s", archiveSchema, name, name));
+                jdbcTemplate.execute("DROP TABLE " + name);
+            } else {
+                jdbcTemplate.execute(String.format("ALTER TABLE %s SET SCHEMA %s", name, archiveSchema));
+            }
+
+            meterRegistry.counter("payment.partitions.maintenance", "outcome", "archived").increment();
+            log.info("method=archiveExpired, message=Archived transactions partition, partition={}, schema={}", name, archiveSchema);
+        }
+    }
+
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList("""
+                SELECT child.relname
+                FROM pg_inherits i
+                JOIN pg_class parent ON parent.oid = i.inhparent
+                JOIN pg_class child ON child.oid = i.inhrelid
+                WHERE parent.relname = ? AND parent.relnamespace = current_schema()::regnamespace
+                """, String.class, TABLE);
+    }
+
+    private boolean archived(String name) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, archiveSchema + "." + name);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return TABLE + "_p" + month.format(PARTITION_SUFFIX);
+    }
+}
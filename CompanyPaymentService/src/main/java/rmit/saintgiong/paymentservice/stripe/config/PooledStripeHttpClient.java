@@ -0,0 +1,197 @@
+package rmit.saintgiong.paymentservice.stripe.config;
+
+import com.stripe.Stripe;
+import com.stripe.exception.APIConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Stripe transport backed by a pooled, keep-alive Apache HttpClient, replacing the SDK's
+ * per-call HttpURLConnection. Retries stay in the SDK's retry loop (Stripe-Should-Retry aware);
+ * this class only sends one attempt and records latency per endpoint and pool usage.
+ */
+@Slf4j
+public class PooledStripeHttpClient extends HttpClient implements Closeable {
+
+    // Stripe object ids look like cs_test_a1B2c3 or pi_3Nx...; collapse them so endpoints stay low-cardinality.
+    private static final Pattern OBJECT_ID = Pattern.compile("/[a-z]{2,}_[A-Za-z0-9_]+");
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient client;
+
+    private final RequestConfig defaultRequestConfig;
+
+    private final Duration connectTimeout;
+
+    private final MeterRegistry meterRegistry;
+
+    public PooledStripeHttpClient(
+            MeterRegistry meterRegistry,
+            int maxConnections,
+            Duration connectTimeout,
+            Duration readTimeout,
+            Duration connectionRequestTimeout,
+            Duration idleEviction
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.connectTimeout = connectTimeout;
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+
+        this.defaultRequestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+                .setResponseTimeout(Timeout.of(readTimeout))
+                .build();
+
+        this.client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(defaultRequestConfig)
+                .disableAutomaticRetries()
+                .disableCookieManagement()
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .evictExpiredConnections()
+                .build();
+
+        Gauge.builder("stripe.http.pool.leased", connectionManager, cm -> cm.getTotalStats().getLeased())
+                .description("Stripe HTTP connections currently in use")
+                .register(meterRegistry);
+        Gauge.builder("stripe.http.pool.available", connectionManager, cm -> cm.getTotalStats().getAvailable())
+                .description("Idle keep-alive Stripe HTTP connections")
+                .register(meterRegistry);
+        Gauge.builder("stripe.http.pool.pending", connectionManager, cm -> cm.getTotalStats().getPending())
+                .description("Requests waiting for a Stripe HTTP connection")
+                .register(meterRegistry);
+        Gauge.builder("stripe.http.pool.max", connectionManager, cm -> cm.getTotalStats().getMax())
+                .description("Maximum Stripe HTTP connections")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws StripeException {
+        String method = request.method().name();
+        String endpoint = OBJECT_ID.matcher(request.url().getPath()).replaceAll("/{id}");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String status = "IO_ERROR";
+
+        try {
+            StripeResponse response = client.execute(toHttpRequest(request), httpResponse -> {
+                String body = httpResponse.getEntity() == null
+                        ? ""
+                        : EntityUtils.toString(httpResponse.getEntity(), StandardCharsets.UTF_8);
+                return new StripeResponse(httpResponse.getCode(), toStripeHeaders(httpResponse.getHeaders()), body);
+            });
+            status = String.valueOf(response.code());
+            return response;
+        } catch (IOException | URISyntaxException e) {
+            log.warn("method=request, message=Stripe HTTP request failed, endpoint={}, err={}", endpoint, e.getMessage());
+            throw new APIConnectionException(
+                    String.format("IOException during API request to Stripe (%s): %s", Stripe.getApiBase(), e.getMessage()),
+                    e);
+        } finally {
+            sample.stop(Timer.builder("stripe.http.client.requests")
+                    .description("Stripe HTTP request latency per endpoint, one sample per attempt")
+                    .tag("method", method)
+                    .tag("endpoint", endpoint)
+                    .tag("status", status)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    private HttpUriRequestBase toHttpRequest(StripeRequest request) throws URISyntaxException {
+        HttpUriRequestBase httpRequest = new HttpUriRequestBase(request.method().name(), request.url().toURI());
+
+        for (Map.Entry<String, List<String>> header : request.headers().map().entrySet()) {
+            for (String value : header.getValue()) {
+                httpRequest.addHeader(header.getKey(), value);
+            }
+        }
+        if (!httpRequest.containsHeader("User-Agent")) {
+            httpRequest.addHeader("User-Agent", "Stripe/v1 JavaBindings/" + Stripe.VERSION);
+        }
+
+        if (request.content() != null) {
+            httpRequest.setEntity(new ByteArrayEntity(
+                    request.content().byteArrayContent(),
+                    ContentType.parse(request.content().contentType())));
+        }
+
+        httpRequest.setConfig(requestConfig(request));
+        return httpRequest;
+    }
+
+    // Honours shorter per-call connect and read timeouts (set from the Stripe call deadline); the
+    // configured stripe.http.* timeouts stay the ceiling, even against the SDK's 80s fallback.
+    // RequestConfig's connect timeout is deprecated in favour of ConnectionConfig, but it is the
+    // only per-request override, and the pool still applies it when it opens a new connection.
+    @SuppressWarnings("deprecation")
+    private RequestConfig requestConfig(StripeRequest request) {
+        Integer connectTimeoutMs = request.options() != null ? request.options().getConnectTimeout() : null;
+        Integer readTimeoutMs = request.options() != null ? request.options().getReadTimeout() : null;
+        boolean shorterConnect = connectTimeoutMs != null && connectTimeoutMs > 0 && connectTimeoutMs < connectTimeout.toMillis();
+        boolean shorterRead = readTimeoutMs != null && readTimeoutMs > 0
+                && readTimeoutMs < defaultRequestConfig.getResponseTimeout().toMilliseconds();
+        if (!shorterConnect && !shorterRead) return defaultRequestConfig;
+
+        RequestConfig.Builder config = RequestConfig.copy(defaultRequestConfig);
+        if (shorterConnect) {
+            config.setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs));
+        }
+        if (shorterRead) {
+            config.setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs));
+        }
+        return config.build();
+    }
+
+    private static HttpHeaders toStripeHeaders(Header[] headers) {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        for (Header header : headers) {
+            values.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+        }
+        return HttpHeaders.of(values);
+    }
+}
@@ -1,23 +1,81 @@
 package rmit.saintgiong.paymentservice.stripe.config;
 
 import com.stripe.Stripe;
+import com.stripe.net.ApiResource;
+import com.stripe.net.LiveStripeResponseGetter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @RequiredArgsConstructor
+@Slf4j
 public class StripeConfig {
 
+    private final ObjectProvider<PooledStripeHttpClient> pooledHttpClient;
+
     @Value("${stripe.apiKey:}")
     private String apiKey;
 
+    // Points the SDK at a stand-in server (e.g. stripe-mock) for local and load testing.
+    @Value("${stripe.apiBase:}")
+    private String apiBase;
+
+    @Value("${stripe.http.maxNetworkRetries:2}")
+    private int maxNetworkRetries;
+
+    @Value("${stripe.http.connectTimeoutMs:3000}")
+    private int connectTimeoutMs;
+
+    @Value("${stripe.http.readTimeoutMs:30000}")
+    private int readTimeoutMs;
+
     @PostConstruct
     public void init() {
         if (apiKey != null && !apiKey.isBlank()) {
             Stripe.apiKey = apiKey;
         }
+        if (apiBase != null && !apiBase.isBlank()) {
+            Stripe.overrideApiBase(apiBase);
+            log.info("method=init, message=Stripe API base overridden, apiBase={}", apiBase);
+        }
+        Stripe.setMaxNetworkRetries(maxNetworkRetries);
+        // The SDK fills unset RequestOptions timeouts from these globals (80s read by default),
+        // so they have to match stripe.http.* or every request overrides the configured timeouts.
+        Stripe.setConnectTimeout(connectTimeoutMs);
+        Stripe.setReadTimeout(readTimeoutMs);
+
+        PooledStripeHttpClient httpClient = pooledHttpClient.getIfAvailable();
+        if (httpClient != null) {
+            ApiResource.setStripeResponseGetter(new LiveStripeResponseGetter(httpClient));
+        }
     }
-}
 
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "stripe.http.pooled", havingValue = "true", matchIfMissing = true)
+    public static PooledStripeHttpClient pooledStripeHttpClient(
+            MeterRegistry meterRegistry,
+            @Value("${stripe.http.maxConnections:50}") int maxConnections,
+            @Value("${stripe.http.connectTimeoutMs:3000}") long connectTimeoutMs,
+            @Value("${stripe.http.readTimeoutMs:30000}") long readTimeoutMs,
+            @Value("${stripe.http.connectionRequestTimeoutMs:1000}") long connectionRequestTimeoutMs,
+            @Value("${stripe.http.idleEvictionSeconds:30}") long idleEvictionSeconds
+    ) {
+        return new PooledStripeHttpClient(
+                meterRegistry,
+                maxConnections,
+                Duration.ofMillis(connectTimeoutMs),
+                Duration.ofMillis(readTimeoutMs),
+                Duration.ofMillis(connectionRequestTimeoutMs),
+                Duration.ofSeconds(idleEvictionSeconds)
+        );
+    }
+}
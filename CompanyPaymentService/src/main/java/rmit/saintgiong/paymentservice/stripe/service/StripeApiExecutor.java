@@ -0,0 +1,210 @@
+package rmit.saintgiong.paymentservice.stripe.service;
+
+import com.stripe.exception.APIConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import rmit.saintgiong.paymentservice.common.exception.domain.DomainException;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static rmit.saintgiong.paymentapi.internal.common.type.DomainCode.SERVICE_UNAVAILABLE;
+
+/**
+ * Runs Stripe API calls off the request thread, on a bounded pool behind a circuit breaker.
+ * A full pool, an open breaker or a missed deadline fail fast with SERVICE_UNAVAILABLE, so a
+ * Stripe brownout cannot tie up the Tomcat workers that serve the rest of the API.
+ * <p>
+ * Cancelling a timed-out call only interrupts the SDK's backoff sleep between retries; an attempt
+ * blocked on socket IO ends at its own connect/read timeout. Callers therefore size those per
+ * attempt with {@link #getAttemptTimeoutMs()}, so every attempt the SDK makes, retries included,
+ * fits inside the call deadline and the worker is released shortly after it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StripeApiExecutor {
+
+    @FunctionalInterface
+    public interface StripeCall<T> {
+        T call() throws StripeException;
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.client.maxConcurrentCalls:32}")
+    private int maxConcurrentCalls;
+
+    @Value("${stripe.client.queueCapacity:64}")
+    private int queueCapacity;
+
+    @Value("${stripe.client.callTimeoutMs:10000}")
+    private long callTimeoutMs;
+
+    @Value("${stripe.http.maxNetworkRetries:2}")
+    private int maxNetworkRetries;
+
+    @Value("${stripe.client.circuitBreaker.failureRateThreshold:50}")
+    private float failureRateThreshold;
+
+    @Value("${stripe.client.circuitBreaker.slowCallDurationMs:5000}")
+    private long slowCallDurationMs;
+
+    @Value("${stripe.client.circuitBreaker.slidingWindowSize:50}")
+    private int slidingWindowSize;
+
+    @Value("${stripe.client.circuitBreaker.minimumNumberOfCalls:20}")
+    private int minimumNumberOfCalls;
+
+    @Value("${stripe.client.circuitBreaker.openStateMs:30000}")
+    private long openStateMs;
+
+    private ThreadPoolExecutor executor;
+
+    private CircuitBreaker circuitBreaker;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                maxConcurrentCalls,
+                maxConcurrentCalls,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "stripe-api-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        executor.allowCoreThreadTimeOut(true);
+
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallDurationMs))
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(Duration.ofMillis(openStateMs))
+                .permittedNumberOfCallsInHalfOpenState(5)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(StripeApiExecutor::isOutage)
+                .build();
+
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        this.circuitBreaker = registry.circuitBreaker("stripe");
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("method=stripeCircuitBreaker, message=State changed, transition={}", event.getStateTransition()));
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        Gauge.builder("stripe.api.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Stripe API calls currently running")
+                .register(meterRegistry);
+        Gauge.builder("stripe.api.executor.queued", executor, e -> e.getQueue().size())
+                .description("Stripe API calls waiting for a free worker")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Connect/read timeout for a single HTTP attempt: the call deadline split across the first
+     * attempt and the SDK's network retries.
+     */
+    public int getAttemptTimeoutMs() {
+        long attempts = Math.max(0, maxNetworkRetries) + 1L;
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, callTimeoutMs / attempts));
+    }
+
+    public <T> T execute(String operation, StripeCall<T> call) throws StripeException {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            latencyTimer(operation, "circuit_open").record(Duration.ZERO);
+            throw new DomainException(SERVICE_UNAVAILABLE, "Stripe calls are suspended after repeated failures");
+        }
+
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(call::call);
+        } catch (RejectedExecutionException e) {
+            circuitBreaker.releasePermission();
+            latencyTimer(operation, "rejected").record(Duration.ZERO);
+            log.warn("method=execute, message=Stripe call rejected, pool is saturated, operation={}", operation);
+            throw new DomainException(SERVICE_UNAVAILABLE, "Too many concurrent Stripe calls");
+        }
+
+        try {
+            T result = future.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+            long elapsed = System.nanoTime() - start;
+            circuitBreaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+            latencyTimer(operation, "success").record(elapsed, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (TimeoutException e) {
+            // Interrupts a retry backoff; an attempt in socket IO stops at its per-attempt timeout.
+            future.cancel(true);
+            long elapsed = System.nanoTime() - start;
+            circuitBreaker.onError(elapsed, TimeUnit.NANOSECONDS, e);
+            latencyTimer(operation, "timeout").record(elapsed, TimeUnit.NANOSECONDS);
+            log.warn("method=execute, message=Stripe call exceeded deadline, operation={}, timeoutMs={}", operation, callTimeoutMs);
+            throw new DomainException(SERVICE_UNAVAILABLE, "Stripe did not respond in time");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            long elapsed = System.nanoTime() - start;
+            circuitBreaker.onError(elapsed, TimeUnit.NANOSECONDS, cause);
+            latencyTimer(operation, "error").record(elapsed, TimeUnit.NANOSECONDS);
+
+            if (cause instanceof StripeException stripeException) throw stripeException;
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IllegalStateException("Stripe call failed", cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            circuitBreaker.releasePermission();
+            Thread.currentThread().interrupt();
+            throw new DomainException(SERVICE_UNAVAILABLE, "Interrupted while waiting for Stripe");
+        }
+    }
+
+    // Only transport failures, 5xx and rate limiting count towards opening the breaker;
+    // card declines and invalid requests are the caller's problem, not a Stripe outage.
+    private static boolean isOutage(Throwable error) {
+        return error instanceof TimeoutException
+                || error instanceof APIConnectionException
+                || error instanceof ApiException
+                || error instanceof RateLimitException;
+    }
+
+    private Timer latencyTimer(String operation, String outcome) {
+        return Timer.builder("stripe.api.latency")
+                .description("Latency of Stripe API calls, including time queued for a worker")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,161 @@
+package rmit.saintgiong.paymentservice.stripe.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import rmit.saintgiong.paymentapi.internal.common.stripe.CheckoutSessionInfo;
+import rmit.saintgiong.paymentapi.internal.common.stripe.PaymentIntentInfo;
+
+import java.io.IOException;
+
+/**
+ * Pulls the handful of fields the webhook handlers need out of a raw Stripe event payload
+ * in a single forward pass over the JSON, without building a Session/PaymentIntent object
+ * graph or a JsonNode tree. Parsing stops as soon as {@code data.object} has been read.
+ */
+@Component
+@Slf4j
+public class StripeEventPayloadExtractor {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * @return the checkout session fields, or null when the payload has no {@code data.object}
+     *         or cannot be parsed
+     */
+    public CheckoutSessionInfo extractCheckoutSessionInfo(String payload) {
+        DataObjectFields fields = readDataObject(payload);
+        if (fields == null) return null;
+
+        return new CheckoutSessionInfo(
+                fields.id,
+                fields.paymentStatus,
+                fields.paymentIntent,
+                fields.clientReferenceId,
+                fields.metadataPaymentId
+        );
+    }
+
+    /**
+     * @return the payment intent fields, or null when the payload has no {@code data.object}
+     *         or cannot be parsed
+     */
+    public PaymentIntentInfo extractPaymentIntentInfo(String payload) {
+        DataObjectFields fields = readDataObject(payload);
+        if (fields == null) return null;
+
+        return new PaymentIntentInfo(fields.id, fields.latestCharge);
+    }
+
+    private DataObjectFields readDataObject(String payload) {
+        if (payload == null || payload.isBlank()) return null;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if ("data".equals(field) && value == JsonToken.START_OBJECT) {
+                    return readData(parser);
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            log.warn("method=readDataObject, message=Failed to stream Stripe payload JSON, err={}", e.getMessage());
+        }
+        return null;
+    }
+
+    private DataObjectFields readData(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if ("object".equals(field) && value == JsonToken.START_OBJECT) {
+                return readObject(parser);
+            }
+            parser.skipChildren();
+        }
+        return null;
+    }
+
+    private DataObjectFields readObject(JsonParser parser) throws IOException {
+        DataObjectFields fields = new DataObjectFields();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            switch (field) {
+                case "id" -> fields.id = textOrNull(parser, value);
+                case "payment_status" -> fields.paymentStatus = textOrNull(parser, value);
+                case "payment_intent" -> fields.paymentIntent = idOrNull(parser, value);
+                case "client_reference_id" -> fields.clientReferenceId = textOrNull(parser, value);
+                case "latest_charge" -> fields.latestCharge = idOrNull(parser, value);
+                case "metadata" -> fields.metadataPaymentId = readMetadataPaymentId(parser, value);
+                default -> parser.skipChildren();
+            }
+        }
+        return fields;
+    }
+
+    private String readMetadataPaymentId(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+
+        String paymentId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            JsonToken entry = parser.nextToken();
+            if ("paymentId".equals(key)) {
+                paymentId = textOrNull(parser, entry);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return paymentId;
+    }
+
+    // Expandable fields arrive either as an id string or as the expanded object.
+    private String idOrNull(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            return textOrNull(parser, value);
+        }
+
+        String id = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            JsonToken entry = parser.nextToken();
+            if ("id".equals(key)) {
+                id = textOrNull(parser, entry);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return id;
+    }
+
+    private String textOrNull(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        String text = parser.getText();
+        return text.isBlank() ? null : text;
+    }
+
+    private static final class DataObjectFields {
+        private String id;
+        private String paymentStatus;
+        private String paymentIntent;
+        private String clientReferenceId;
+        private String metadataPaymentId;
+        private String latestCharge;
+    }
+}
@@ -0,0 +1,77 @@
+package rmit.saintgiong.paymentservice.stripe.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Bounded map from Stripe identifiers (Checkout Session id, PaymentIntent id) to the parts of our
+ * payment row that never change after insert. Filled when a checkout session is created and
+ * whenever a webhook lookup hits the database, so most webhook deliveries go straight to the
+ * partition-pruned conditional UPDATE without reading the row first.
+ */
+@Component
+@RequiredArgsConstructor
+public class StripePaymentLookupCache {
+
+    private static final String SESSION_PREFIX = "cs:";
+    private static final String INTENT_PREFIX = "pi:";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stripe.lookupCache.maxSize:50000}")
+    private long maxSize;
+
+    @Value("${stripe.lookupCache.ttlHours:72}")
+    private long ttlHours;
+
+    private Cache<String, PaymentRef> payments;
+
+    /**
+     * Immutable columns of a payment: enough to address its row (purchasedAt is the partition key)
+     * and to queue the subscription-paid notification.
+     */
+    public record PaymentRef(UUID id, LocalDateTime purchasedAt, UUID companyId, UUID subscriptionId) {
+    }
+
+    @PostConstruct
+    public void init() {
+        this.payments = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, payments, "stripePaymentLookup");
+    }
+
+    public void remember(String sessionId, String paymentIntentId, PaymentRef payment) {
+        if (payment == null || payment.id() == null || payment.purchasedAt() == null) return;
+
+        if (sessionId != null && !sessionId.isBlank()) {
+            payments.put(SESSION_PREFIX + sessionId, payment);
+        }
+        if (paymentIntentId != null && !paymentIntentId.isBlank()) {
+            payments.put(INTENT_PREFIX + paymentIntentId, payment);
+        }
+    }
+
+    public PaymentRef findBySessionId(String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) return null;
+        return payments.getIfPresent(SESSION_PREFIX + sessionId);
+    }
+
+    public PaymentRef findByPaymentIntentId(String paymentIntentId) {
+        if (paymentIntentId == null || paymentIntentId.isBlank()) return null;
+        return payments.getIfPresent(INTENT_PREFIX + paymentIntentId);
+    }
+}
@@ -1,24 +1,33 @@
 package rmit.saintgiong.paymentservice.stripe.service;
 
+import com.stripe.exception.IdempotencyException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
 import com.stripe.param.checkout.SessionCreateParams;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import rmit.saintgiong.paymentservice.common.exception.domain.DomainException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.Locale;
 import java.util.Map;
 
+import static rmit.saintgiong.paymentapi.internal.common.type.DomainCode.INVALID_BUSINESS_LOGIC;
+
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class StripePaymentService {
 
+    private final StripeApiExecutor stripeApiExecutor;
+
     /**
      * Creates a Stripe PaymentIntent.
      * Stripe expects amount in the smallest currency unit (e.g., cents) as a long.
@@ -33,11 +42,15 @@ public class StripePaymentService {
         log.info("createPaymentIntent, amount={}, currentcy={}", amount, currency);
 
         try {
-            PaymentIntentCreateParams.Builder params = PaymentIntentCreateParams.builder()
+            PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
                     .setAmount(minorUnits)
-                    .setCurrency(currency.trim().toLowerCase(Locale.ROOT));
+                    .setCurrency(currency.trim().toLowerCase(Locale.ROOT))
+                    .build();
 
-            PaymentIntent intent = PaymentIntent.create(params.build());
+            PaymentIntent intent = stripeApiExecutor.execute(
+                    "payment_intent.create",
+                    () -> PaymentIntent.create(params, requestOptions(null))
+            );
             return intent.getId();
         } catch (StripeException e) {
             throw new RuntimeException("Stripe API error", e);
@@ -55,6 +68,23 @@ public class StripePaymentService {
             String description,
             String clientReferenceId,
             Map<String, String> metadata
+    ) {
+        return createCheckoutSession(amount, currency, successUrl, cancelUrl, description, clientReferenceId, metadata, null);
+    }
+
+    /**
+     * Same as above, sending {@code idempotencyKey} to Stripe so a retried request returns
+     * the session created by the first attempt instead of opening a new one.
+     */
+    public CheckoutSessionResult createCheckoutSession(
+            Double amount,
+            String currency,
+            String successUrl,
+            String cancelUrl,
+            String description,
+            String clientReferenceId,
+            Map<String, String> metadata,
+            String idempotencyKey
     ) {
         validateAmountCurrency(amount, currency);
         if (successUrl == null || successUrl.isBlank()) {
@@ -98,9 +128,16 @@ public class StripePaymentService {
                 params.putAllMetadata(metadata);
             }
 
-            Session session = Session.create(params.build());
+            SessionCreateParams sessionParams = params.build();
+            Session session = stripeApiExecutor.execute(
+                    "checkout_session.create",
+                    () -> Session.create(sessionParams, requestOptions(idempotencyKey))
+            );
 
-            return new CheckoutSessionResult(session.getId(), session.getUrl(), session.getPaymentIntent());
+            return new CheckoutSessionResult(session.getId(), session.getUrl(), session.getPaymentIntent(), session.getExpiresAt());
+        } catch (IdempotencyException e) {
+            // The key is still running, or was used, on Stripe's side with other parameters.
+            throw new DomainException(INVALID_BUSINESS_LOGIC, "Idempotency-Key was already used with different parameters");
         } catch (StripeException e) {
             throw new RuntimeException("Stripe API error", e);
         }
@@ -113,6 +150,20 @@ public class StripePaymentService {
         private String url;
         /** PaymentIntent id if created by Checkout (often available immediately). */
         private String paymentIntentId;
+        /** Epoch seconds after which the hosted checkout page can no longer be paid. */
+        private Long expiresAt;
+    }
+
+    // Each attempt gets deadline / (retries + 1), so the SDK's retries cannot outlive the call deadline.
+    private RequestOptions requestOptions(String idempotencyKey) {
+        int attemptTimeoutMs = stripeApiExecutor.getAttemptTimeoutMs();
+        RequestOptions.RequestOptionsBuilder options = RequestOptions.builder()
+                .setConnectTimeout(attemptTimeoutMs)
+                .setReadTimeout(attemptTimeoutMs);
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            options.setIdempotencyKey(idempotencyKey);
+        }
+        return options.build();
     }
 
     private void validateAmountCurrency(Double amount, String currency) {
@@ -0,0 +1,70 @@
+-- Schema as previously generated by hibernate.ddl-auto=update. Idempotent, so it applies both to
+-- empty databases and to ones created by Hibernate (baselined at version 0).
+
+CREATE TABLE IF NOT EXISTS transactions (
+    id                         uuid             NOT NULL,
+    company_id                 uuid             NOT NULL,
+    amount                     double precision NOT NULL,
+    currency                   varchar(255)     NOT NULL,
+    gateway                    varchar(255)     NOT NULL,
+    method                     varchar(255)     NOT NULL,
+    purchased_at               timestamp(6)     NOT NULL,
+    status                     varchar(255)     NOT NULL,
+    stripe_payment_intent_id   varchar(255),
+    stripe_checkout_session_id varchar(255),
+    payment_transaction_id     varchar(255),
+    subscription_id            uuid,
+    CONSTRAINT transactions_pkey PRIMARY KEY (id)
+);
+
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS idempotency_key varchar(255);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS checkout_url varchar(2048);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS checkout_expires_at timestamp(6);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS payment_notification_outbox (
+    id              uuid          NOT NULL,
+    company_id      uuid          NOT NULL,
+    transaction_id  uuid          NOT NULL,
+    status          varchar(255)  NOT NULL,
+    created_at      timestamp(6)  NOT NULL,
+    next_attempt_at timestamp(6)  NOT NULL,
+    delivered_at    timestamp(6),
+    attempts        integer       NOT NULL,
+    last_error      varchar(1024),
+    CONSTRAINT payment_notification_outbox_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_delivered_next_attempt
+    ON payment_notification_outbox (delivered_at, next_attempt_at);
+
+CREATE TABLE IF NOT EXISTS stripe_processed_events (
+    event_id     varchar(255) NOT NULL,
+    event_type   varchar(255) NOT NULL,
+    processed_at timestamp(6) NOT NULL,
+    CONSTRAINT stripe_processed_events_pkey PRIMARY KEY (event_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_stripe_processed_event_processed_at
+    ON stripe_processed_events (processed_at);
+
+CREATE TABLE IF NOT EXISTS stripe_webhook_inbox (
+    id              uuid          NOT NULL,
+    event_id        varchar(255)  NOT NULL,
+    event_type      varchar(255)  NOT NULL,
+    payload         text          NOT NULL,
+    status          varchar(255)  NOT NULL,
+    attempts        integer       NOT NULL,
+    received_at     timestamp(6)  NOT NULL,
+    next_attempt_at timestamp(6)  NOT NULL,
+    locked_at       timestamp(6),
+    processed_at    timestamp(6),
+    last_error      varchar(1024),
+    CONSTRAINT stripe_webhook_inbox_pkey PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_stripe_webhook_inbox_event_id
+    ON stripe_webhook_inbox (event_id);
+
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_status_next_attempt
+    ON stripe_webhook_inbox (status, next_attempt_at);
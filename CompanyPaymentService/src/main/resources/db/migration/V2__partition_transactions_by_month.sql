@@ -0,0 +1,118 @@
+-- Range-partition transactions by purchased_at month. Rows are copied into a new partitioned table,
+-- which then takes over the name, so repository queries are unchanged. Run during a quiet window:
+-- the copy holds an exclusive lock on the old table.
+
+LOCK TABLE transactions IN ACCESS EXCLUSIVE MODE;
+
+-- Every unique constraint on a partitioned table must include the partition key, so the primary key
+-- becomes (id, purchased_at). Ids are UUIDv7 and remain unique on their own.
+CREATE TABLE transactions_partitioned (
+    id                         uuid             NOT NULL,
+    company_id                 uuid             NOT NULL,
+    amount                     double precision NOT NULL,
+    currency                   varchar(255)     NOT NULL,
+    gateway                    varchar(255)     NOT NULL,
+    method                     varchar(255)     NOT NULL,
+    purchased_at               timestamp(6)     NOT NULL,
+    status                     varchar(255)     NOT NULL,
+    stripe_payment_intent_id   varchar(255),
+    stripe_checkout_session_id varchar(255),
+    payment_transaction_id     varchar(255),
+    subscription_id            uuid,
+    idempotency_key            varchar(255),
+    checkout_url               varchar(2048),
+    checkout_expires_at        timestamp(6),
+    version                    bigint           NOT NULL DEFAULT 0,
+    CONSTRAINT transactions_pk PRIMARY KEY (id, purchased_at)
+) PARTITION BY RANGE (purchased_at);
+
+-- Catches rows outside every monthly partition; the maintenance job keeps it empty by creating
+-- partitions ahead of time.
+CREATE TABLE transactions_default PARTITION OF transactions_partitioned DEFAULT;
+
+DO $$
+DECLARE
+    month_start date := date_trunc('month', coalesce((SELECT min(purchased_at) FROM transactions), now()))::date;
+    last_month  date := (date_trunc('month', now()) + interval '3 months')::date;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        EXECUTE format(
+                'CREATE TABLE %I PARTITION OF transactions_partitioned FOR VALUES FROM (%L) TO (%L)',
+                'transactions_p' || to_char(month_start, 'YYYY_MM'),
+                month_start,
+                (month_start + interval '1 month')::date);
+        month_start := (month_start + interval '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO transactions_partitioned (
+    id, company_id, amount, currency, gateway, method, purchased_at, status,
+    stripe_payment_intent_id, stripe_checkout_session_id, payment_transaction_id, subscription_id,
+    idempotency_key, checkout_url, checkout_expires_at, version)
+SELECT id, company_id, amount, currency, gateway, method, purchased_at, status,
+       stripe_payment_intent_id, stripe_checkout_session_id, payment_transaction_id, subscription_id,
+       idempotency_key, checkout_url, checkout_expires_at, version
+FROM transactions;
+
+DROP TABLE transactions;
+ALTER TABLE transactions_partitioned RENAME TO transactions;
+
+-- Indexes on the parent are created on every partition, current and future (local indexes).
+CREATE INDEX idx_transaction_payment_txn_id ON transactions (payment_transaction_id);
+CREATE INDEX idx_transaction_stripe_intent_id ON transactions (stripe_payment_intent_id);
+CREATE INDEX idx_transaction_stripe_checkout_session_id ON transactions (stripe_checkout_session_id);
+CREATE INDEX idx_transaction_purchased ON transactions (purchased_at, id);
+CREATE INDEX idx_transaction_company_purchased ON transactions (company_id, purchased_at, id);
+CREATE INDEX idx_transaction_status_purchased ON transactions (status, purchased_at, id);
+CREATE INDEX idx_transaction_currency_purchased ON transactions (currency, purchased_at, id);
+CREATE INDEX idx_transaction_company_status_purchased ON transactions (company_id, status, purchased_at, id);
+CREATE INDEX idx_transaction_company_currency_purchased ON transactions (company_id, currency, purchased_at, id);
+CREATE INDEX idx_transaction_status_currency_purchased ON transactions (status, currency, purchased_at, id);
+CREATE INDEX idx_transaction_company_status_currency_purchased ON transactions (company_id, status, currency, purchased_at, id);
+
+-- (company_id, idempotency_key) cannot stay a unique constraint on the partitioned table. A small
+-- unpartitioned table claims each key on insert instead; a duplicate still fails the INSERT with a
+-- unique violation, which the create service already handles.
+CREATE TABLE transaction_idempotency_keys (
+    company_id      uuid         NOT NULL,
+    idempotency_key varchar(255) NOT NULL,
+    transaction_id  uuid         NOT NULL,
+    CONSTRAINT uk_transaction_company_idempotency_key PRIMARY KEY (company_id, idempotency_key)
+);
+
+INSERT INTO transaction_idempotency_keys (company_id, idempotency_key, transaction_id)
+SELECT company_id, idempotency_key, id
+FROM transactions
+WHERE idempotency_key IS NOT NULL
+ON CONFLICT DO NOTHING;
+
+CREATE FUNCTION transactions_claim_idempotency_key() RETURNS trigger AS $$
+BEGIN
+    IF NEW.idempotency_key IS NOT NULL THEN
+        INSERT INTO transaction_idempotency_keys (company_id, idempotency_key, transaction_id)
+        VALUES (NEW.company_id, NEW.idempotency_key, NEW.id);
+    END IF;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION transactions_release_idempotency_key() RETURNS trigger AS $$
+BEGIN
+    IF OLD.idempotency_key IS NOT NULL THEN
+        DELETE FROM transaction_idempotency_keys
+        WHERE company_id = OLD.company_id AND idempotency_key = OLD.idempotency_key;
+    END IF;
+    RETURN OLD;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_transactions_claim_idempotency_key
+    BEFORE INSERT ON transactions
+    FOR EACH ROW EXECUTE FUNCTION transactions_claim_idempotency_key();
+
+CREATE TRIGGER trg_transactions_release_idempotency_key
+    AFTER DELETE ON transactions
+    FOR EACH ROW EXECUTE FUNCTION transactions_release_idempotency_key();
+
+-- Detached partitions past the retention window are moved here rather than dropped.
+CREATE SCHEMA IF NOT EXISTS transactions_archive;
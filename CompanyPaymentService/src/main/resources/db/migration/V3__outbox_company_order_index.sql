@@ -0,0 +1,4 @@
+-- The relay only claims a company's oldest undelivered notification; this serves that lookup.
+CREATE INDEX IF NOT EXISTS idx_outbox_company_undelivered
+    ON payment_notification_outbox (company_id, created_at)
+    WHERE delivered_at IS NULL;
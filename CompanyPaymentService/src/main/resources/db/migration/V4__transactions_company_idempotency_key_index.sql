@@ -0,0 +1,5 @@
+-- Serves the create service's replay lookup by (company_id, idempotency_key). The claim table's
+-- primary key enforces uniqueness, but the lookup reads the transactions row itself.
+CREATE INDEX IF NOT EXISTS idx_transaction_company_idempotency_key
+    ON transactions (company_id, idempotency_key)
+    WHERE idempotency_key IS NOT NULL;
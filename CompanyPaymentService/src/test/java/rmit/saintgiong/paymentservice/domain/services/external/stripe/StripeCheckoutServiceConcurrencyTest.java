@@ -0,0 +1,231 @@
+package rmit.saintgiong.paymentservice.domain.services.external.stripe;
+
+import com.stripe.model.Event;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import rmit.saintgiong.paymentapi.internal.common.stripe.CheckoutSessionInfo;
+import rmit.saintgiong.paymentapi.internal.common.stripe.PaymentIntentInfo;
+import rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus;
+import rmit.saintgiong.paymentservice.domain.models.PaymentStatusTransitions;
+import rmit.saintgiong.paymentservice.domain.repositories.CompanyPaymentRepository;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
+import rmit.saintgiong.paymentservice.domain.services.external.payment.SubscriptionPaidOutboxService;
+import rmit.saintgiong.paymentservice.domain.services.internal.CompanyPaymentReadCache;
+import rmit.saintgiong.paymentservice.domain.services.internal.PaymentStatusEventBroker;
+import rmit.saintgiong.paymentservice.stripe.service.StripeEventPayloadExtractor;
+import rmit.saintgiong.paymentservice.stripe.service.StripePaymentLookupCache;
+import rmit.saintgiong.paymentservice.stripe.service.StripePaymentLookupCache.PaymentRef;
+import rmit.saintgiong.paymentservice.stripe.service.StripePaymentService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus.FAILED;
+import static rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus.PENDING;
+import static rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus.SUCCESSFUL;
+
+/**
+ * Stripe delivers checkout and payment intent events concurrently, repeatedly and in any order.
+ * The repository is backed by one in-memory row that applies the same compare-and-set as the
+ * UPDATE statements, so these tests exercise the service's handling of won and lost races.
+ */
+class StripeCheckoutServiceConcurrencyTest {
+
+    private static final UUID PAYMENT_ID = UUID.fromString("0190a5c4-1111-7000-8000-000000000001");
+
+    private static final UUID COMPANY_ID = UUID.fromString("11111111-1111-1111-1111-111111111111");
+
+    private static final LocalDateTime PURCHASED_AT = LocalDateTime.of(2026, 10, 17, 9, 30);
+
+    private static final String SESSION_ID = "cs_test_a1B2c3";
+
+    private static final String INTENT_ID = "pi_3QbT4zLkdIwHu7ix";
+
+    private static final String CHARGE_ID = "ch_3QbT4zLkdIwHu7ix";
+
+    private final StoredPayment row = new StoredPayment();
+
+    private final CompanyPaymentRepository repository = mock(CompanyPaymentRepository.class);
+
+    private final StripeEventPayloadExtractor payloadExtractor = mock(StripeEventPayloadExtractor.class);
+
+    private final SubscriptionPaidOutboxService outbox = mock(SubscriptionPaidOutboxService.class);
+
+    private final StripePaymentLookupCache lookupCache = mock(StripePaymentLookupCache.class);
+
+    private final StripeCheckoutService service = new StripeCheckoutService(
+            mock(StripePaymentService.class),
+            repository,
+            payloadExtractor,
+            lookupCache,
+            outbox,
+            mock(CompanyPaymentReadCache.class),
+            mock(PaymentStatusEventBroker.class)
+    );
+
+    private final Event event = mock(Event.class);
+
+    StripeCheckoutServiceConcurrencyTest() {
+        when(payloadExtractor.extractCheckoutSessionInfo("session"))
+                .thenReturn(new CheckoutSessionInfo(SESSION_ID, "paid", INTENT_ID, PAYMENT_ID.toString(), PAYMENT_ID.toString()));
+        when(payloadExtractor.extractPaymentIntentInfo("intent"))
+                .thenReturn(new PaymentIntentInfo(INTENT_ID, CHARGE_ID));
+
+        when(repository.findByAnyStripeIdentifier(any(), any(), any(), any()))
+                .thenAnswer(invocation -> List.of(row.load()));
+        when(repository.findByStripePaymentIntentId(INTENT_ID))
+                .thenAnswer(invocation -> Optional.of(row.load()));
+        when(repository.transitionStatus(eq(PAYMENT_ID), eq(PURCHASED_AT), any(), any(), any()))
+                .thenAnswer(invocation -> row.transition(
+                        invocation.getArgument(2), invocation.getArgument(3), invocation.getArgument(4)));
+        when(repository.fillPaymentTransactionId(eq(PAYMENT_ID), eq(PURCHASED_AT), any(), any(), anyString()))
+                .thenAnswer(invocation -> row.fill(
+                        invocation.getArgument(2), invocation.getArgument(3), invocation.getArgument(4)));
+    }
+
+    @Test
+    void chargeIdIsStoredWhenCheckoutSessionCompletedArrivesFirst() {
+        service.handleCheckoutSessionCompleted(event, "session");
+        assertThat(row.paymentTransactionId).isEqualTo(INTENT_ID);
+
+        service.handlePaymentIntentSucceeded(event, "intent");
+
+        assertThat(row.status).isEqualTo(SUCCESSFUL);
+        assertThat(row.paymentTransactionId).isEqualTo(CHARGE_ID);
+        verify(outbox, times(1)).enqueue(COMPANY_ID, PAYMENT_ID, SUCCESSFUL.toString());
+    }
+
+    @Test
+    void lateCheckoutSessionCompletedDoesNotReplaceChargeId() {
+        service.handlePaymentIntentSucceeded(event, "intent");
+        service.handleCheckoutSessionCompleted(event, "session");
+
+        assertThat(row.paymentTransactionId).isEqualTo(CHARGE_ID);
+        verify(outbox, times(1)).enqueue(COMPANY_ID, PAYMENT_ID, SUCCESSFUL.toString());
+    }
+
+    @Test
+    void lateFailureDoesNotOverwriteSuccess() {
+        service.handlePaymentIntentSucceeded(event, "intent");
+        service.handlePaymentIntentFailed(event, "intent");
+        service.handleCheckoutSessionAsyncFailed(event, "session");
+
+        assertThat(row.status).isEqualTo(SUCCESSFUL);
+        verify(outbox, times(1)).enqueue(COMPANY_ID, PAYMENT_ID, SUCCESSFUL.toString());
+    }
+
+    @Test
+    void failureBeforeAnyDeliveryDoesNotNotify() {
+        service.handlePaymentIntentFailed(event, "intent");
+
+        assertThat(row.status).isEqualTo(FAILED);
+        verify(outbox, never()).enqueue(any(), any(), any());
+    }
+
+    @Test
+    void cachedPaymentIsUpdatedWithoutReadingTheRow() {
+        when(lookupCache.findByPaymentIntentId(INTENT_ID))
+                .thenReturn(new PaymentRef(PAYMENT_ID, PURCHASED_AT, COMPANY_ID, null));
+
+        service.handlePaymentIntentSucceeded(event, "intent");
+
+        assertThat(row.status).isEqualTo(SUCCESSFUL);
+        verify(repository, never()).findByStripePaymentIntentId(anyString());
+        verify(repository, never()).findById(any());
+        verify(outbox, times(1)).enqueue(COMPANY_ID, PAYMENT_ID, SUCCESSFUL.toString());
+    }
+
+    @RepeatedTest(50)
+    void shuffledConcurrentDeliveriesSettleOnceWithChargeId() throws Exception {
+        List<Runnable> deliveries = new ArrayList<>();
+        for (int copy = 0; copy < 3; copy++) {
+            deliveries.add(() -> service.handleCheckoutSessionCompleted(event, "session"));
+            deliveries.add(() -> service.handleCheckoutSessionAsyncSucceeded(event, "session"));
+            deliveries.add(() -> service.handlePaymentIntentSucceeded(event, "intent"));
+            deliveries.add(() -> service.handlePaymentIntentFailed(event, "intent"));
+            deliveries.add(() -> service.handleCheckoutSessionAsyncFailed(event, "session"));
+        }
+        Collections.shuffle(deliveries);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable delivery : deliveries) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    delivery.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(row.status).isEqualTo(SUCCESSFUL);
+        assertThat(row.paymentTransactionId).isEqualTo(CHARGE_ID);
+        verify(outbox, times(1)).enqueue(COMPANY_ID, PAYMENT_ID, SUCCESSFUL.toString());
+    }
+
+    /** One transactions row; each method mirrors the WHERE clause of its repository UPDATE. */
+    private static final class StoredPayment {
+
+        private TransactionStatus status = PENDING;
+
+        private String paymentTransactionId;
+
+        private long version;
+
+        synchronized CompanyPaymentEntity load() {
+            return CompanyPaymentEntity.builder()
+                    .id(PAYMENT_ID)
+                    .companyId(COMPANY_ID)
+                    .purchasedAt(PURCHASED_AT)
+                    .status(status)
+                    .stripeCheckoutSessionId(SESSION_ID)
+                    .stripePaymentIntentId(INTENT_ID)
+                    .paymentTransactionId(paymentTransactionId)
+                    .build();
+        }
+
+        synchronized int transition(Collection<TransactionStatus> allowedSources, TransactionStatus target, String transactionId) {
+            if (!allowedSources.contains(status)) return 0;
+            assertThat(PaymentStatusTransitions.isAllowed(status, target)).isTrue();
+            status = target;
+            if (transactionId != null) paymentTransactionId = transactionId;
+            version++;
+            return 1;
+        }
+
+        synchronized int fill(TransactionStatus expectedStatus, String replaceableId, String chargeId) {
+            if (status != expectedStatus) return 0;
+            if (paymentTransactionId != null && !paymentTransactionId.equals(replaceableId)) return 0;
+            paymentTransactionId = chargeId;
+            version++;
+            return 1;
+        }
+    }
+}
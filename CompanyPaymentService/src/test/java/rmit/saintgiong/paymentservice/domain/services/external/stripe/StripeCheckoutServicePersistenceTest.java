@@ -0,0 +1,203 @@
+package rmit.saintgiong.paymentservice.domain.services.external.stripe;
+
+import com.stripe.model.Event;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import rmit.saintgiong.paymentapi.internal.common.stripe.CheckoutSessionInfo;
+import rmit.saintgiong.paymentapi.internal.common.stripe.PaymentIntentInfo;
+import rmit.saintgiong.paymentservice.domain.repositories.CompanyPaymentRepository;
+import rmit.saintgiong.paymentservice.domain.repositories.entities.CompanyPaymentEntity;
+import rmit.saintgiong.paymentservice.domain.services.external.payment.SubscriptionPaidOutboxService;
+import rmit.saintgiong.paymentservice.domain.services.internal.CompanyPaymentReadCache;
+import rmit.saintgiong.paymentservice.domain.services.internal.PaymentStatusEventBroker;
+import rmit.saintgiong.paymentservice.stripe.service.StripeEventPayloadExtractor;
+import rmit.saintgiong.paymentservice.stripe.service.StripePaymentLookupCache;
+import rmit.saintgiong.paymentservice.stripe.service.StripePaymentService;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static rmit.saintgiong.paymentapi.internal.common.type.TransactionStatus.SUCCESSFUL;
+
+/**
+ * Runs the webhook handlers against the real repository inside one JPA transaction, the way the
+ * inbox workers call them. The payment is loaded as a managed entity before the conditional
+ * UPDATE bumps its version, so anything that leaves that entity dirty fails the commit with an
+ * optimistic locking error. The mocked-repository tests cannot see that flush.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class StripeCheckoutServicePersistenceTest {
+
+    private static final UUID COMPANY_ID = UUID.fromString("11111111-1111-1111-1111-111111111111");
+
+    private static final String SESSION_ID = "cs_test_a1B2c3";
+
+    private static final String INTENT_ID = "pi_3QbT4zLkdIwHu7ix";
+
+    private static final String CHARGE_ID = "ch_3QbT4zLkdIwHu7ix";
+
+    @Container
+    private static final PostgreSQLContainer POSTGRES = new PostgreSQLContainer("postgres:16-alpine");
+
+    private static AnnotationConfigApplicationContext context;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private static TransactionTemplate transactionTemplate;
+
+    private final StripeEventPayloadExtractor payloadExtractor = mock(StripeEventPayloadExtractor.class);
+
+    private final SubscriptionPaidOutboxService outbox = mock(SubscriptionPaidOutboxService.class);
+
+    private final Event event = mock(Event.class);
+
+    private StripeCheckoutService service;
+
+    private UUID paymentId;
+
+    @BeforeAll
+    static void startContext() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+
+        context = new AnnotationConfigApplicationContext(JpaConfig.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @AfterAll
+    static void closeContext() {
+        if (context != null) context.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE transactions, transaction_idempotency_keys");
+
+        paymentId = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO transactions (id, company_id, amount, currency, gateway, method, purchased_at, status,
+                                          stripe_checkout_session_id, stripe_payment_intent_id)
+                VALUES (?, ?, 29.99, 'USD', 'stripe', 'CREDIT_CARD', ?, 'PENDING', ?, ?)
+                """, paymentId, COMPANY_ID, LocalDateTime.now().withNano(0), SESSION_ID, INTENT_ID);
+
+        when(payloadExtractor.extractCheckoutSessionInfo("session"))
+                .thenReturn(new CheckoutSessionInfo(SESSION_ID, "paid", INTENT_ID, paymentId.toString(), paymentId.toString()));
+        when(payloadExtractor.extractPaymentIntentInfo("intent"))
+                .thenReturn(new PaymentIntentInfo(INTENT_ID, CHARGE_ID));
+
+        service = new StripeCheckoutService(
+                mock(StripePaymentService.class),
+                context.getBean(CompanyPaymentRepository.class),
+                payloadExtractor,
+                mock(StripePaymentLookupCache.class),
+                outbox,
+                mock(CompanyPaymentReadCache.class),
+                mock(PaymentStatusEventBroker.class)
+        );
+    }
+
+    @Test
+    void appliedTransitionSurvivesCommit() {
+        transactionTemplate.executeWithoutResult(status -> service.handlePaymentIntentSucceeded(event, "intent"));
+
+        assertThat(row()).containsEntry("status", "SUCCESSFUL")
+                .containsEntry("payment_transaction_id", CHARGE_ID)
+                .containsEntry("version", 1L);
+        verify(outbox, times(1)).enqueue(COMPANY_ID, paymentId, SUCCESSFUL.toString());
+    }
+
+    @Test
+    void chargeIdRecordedAfterCheckoutSurvivesCommit() {
+        transactionTemplate.executeWithoutResult(status -> service.handleCheckoutSessionCompleted(event, "session"));
+        transactionTemplate.executeWithoutResult(status -> service.handlePaymentIntentSucceeded(event, "intent"));
+
+        assertThat(row()).containsEntry("status", "SUCCESSFUL")
+                .containsEntry("payment_transaction_id", CHARGE_ID)
+                .containsEntry("version", 2L);
+        verify(outbox, times(1)).enqueue(COMPANY_ID, paymentId, SUCCESSFUL.toString());
+    }
+
+    @Test
+    void bothDeliveriesInOneTransactionCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            service.handleCheckoutSessionCompleted(event, "session");
+            service.handlePaymentIntentSucceeded(event, "intent");
+        });
+
+        assertThat(row()).containsEntry("status", "SUCCESSFUL")
+                .containsEntry("payment_transaction_id", CHARGE_ID)
+                .containsEntry("version", 2L);
+    }
+
+    private Map<String, Object> row() {
+        return jdbcTemplate.queryForMap(
+                "SELECT status, payment_transaction_id, version FROM transactions WHERE id = ?", paymentId);
+    }
+
+    @Configuration
+    @EnableJpaRepositories(
+            basePackageClasses = CompanyPaymentRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = CompanyPaymentRepository.class))
+    static class JpaConfig {
+
+        @Bean
+        DataSource dataSource() {
+            return new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        // Same naming and Hibernate settings the service runs with; the schema comes from Flyway.
+        @Bean
+        LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+            LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setPackagesToScan(CompanyPaymentEntity.class.getPackageName());
+            factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            factory.setJpaPropertyMap(Map.of(
+                    "hibernate.hbm2ddl.auto", "none",
+                    "hibernate.physical_naming_strategy", "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy"
+            ));
+            return factory;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package rmit.saintgiong.paymentservice.domain.services.internal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the Flyway migrations against a real Postgres and checks which partitions the hot queries
+ * touch, plus how the maintenance job deals with rows that landed in the default partition.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionPartitioningTest {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final Pattern SCANNED_PARTITION = Pattern.compile("on (transactions_(?:p\\d{4}_\\d{2}|default))\\b");
+
+    private static final UUID COMPANY_ID = UUID.fromString("11111111-1111-1111-1111-111111111111");
+
+    @Container
+    private static final PostgreSQLContainer POSTGRES = new PostgreSQLContainer("postgres:16-alpine");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private static TransactionTemplate transactionTemplate;
+
+    private TransactionPartitionMaintenanceService maintenance;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("TRUNCATE transactions, transaction_idempotency_keys");
+
+        maintenance = new TransactionPartitionMaintenanceService(jdbcTemplate, transactionTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(maintenance, "enabled", true);
+        ReflectionTestUtils.setField(maintenance, "monthsAhead", 3);
+        ReflectionTestUtils.setField(maintenance, "retentionMonths", 24);
+        ReflectionTestUtils.setField(maintenance, "archiveSchema", "transactions_archive");
+        ReflectionTestUtils.setField(maintenance, "lockTimeoutMs", 5000L);
+        maintenance.maintain();
+    }
+
+    @Test
+    void listingWithinOneMonthScansOnlyThatPartition() {
+        YearMonth month = YearMonth.now();
+
+        List<String> scanned = scannedPartitions(String.format("""
+                SELECT id FROM transactions
+                WHERE company_id = '%s' AND purchased_at >= '%s' AND purchased_at < '%s'
+                ORDER BY purchased_at DESC, id DESC
+                LIMIT 20
+                """, COMPANY_ID, month.atDay(1), month.plusMonths(1).atDay(1)));
+
+        assertThat(scanned).containsExactly(partitionName(month));
+    }
+
+    @Test
+    void statusTransitionWithPurchasedAtTouchesOnePartition() {
+        LocalDateTime purchasedAt = LocalDateTime.now().withNano(0);
+
+        List<String> scanned = scannedPartitions(String.format("""
+                UPDATE transactions SET status = 'SUCCESSFUL', version = version + 1
+                WHERE id = '%s' AND purchased_at = '%s' AND status IN ('PENDING', 'FAILED')
+                """, UUID.randomUUID(), purchasedAt));
+
+        assertThat(scanned).containsExactly(partitionName(YearMonth.from(purchasedAt)));
+    }
+
+    // Pins the documented cost of id-only lookups: one primary key probe per partition.
+    @Test
+    void lookupByIdAloneProbesEveryPartition() {
+        List<String> scanned = scannedPartitions("SELECT * FROM transactions WHERE id = '" + UUID.randomUUID() + "'");
+
+        assertThat(scanned).containsExactlyInAnyOrderElementsOf(partitions());
+    }
+
+    @Test
+    void maintenanceMovesDefaultPartitionRowsIntoTheirMonth() {
+        YearMonth month = earliestPartitionMonth().minusMonths(5);
+        UUID id = insert(month.atDay(10).atTime(12, 0), "key-old");
+        assertThat(rowsIn("transactions_default")).isEqualTo(1);
+
+        maintenance.maintain();
+
+        assertThat(rowsIn("transactions_default")).isZero();
+        assertThat(partitions()).contains(partitionName(month));
+        assertThat(rowsIn(partitionName(month))).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM transaction_idempotency_keys WHERE transaction_id = ?", Long.class, id)).isEqualTo(1);
+    }
+
+    @Test
+    void defaultPartitionRowsPastRetentionAreArchived() {
+        YearMonth month = YearMonth.now().minusMonths(30);
+        UUID id = insert(month.atDay(3).atTime(8, 0), "key-expired");
+
+        maintenance.maintain();
+
+        assertThat(rowsIn("transactions_default")).isZero();
+        assertThat(partitions()).doesNotContain(partitionName(month));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM transactions_archive." + partitionName(month) + " WHERE id = ?", Long.class, id)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM transaction_idempotency_keys WHERE transaction_id = ?", Long.class, id)).isZero();
+    }
+
+    private UUID insert(LocalDateTime purchasedAt, String idempotencyKey) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO transactions (id, company_id, amount, currency, gateway, method, purchased_at, status, idempotency_key)
+                VALUES (?, ?, 29.99, 'USD', 'stripe', 'CREDIT_CARD', ?, 'SUCCESSFUL', ?)
+                """, id, COMPANY_ID, purchasedAt, idempotencyKey);
+        return id;
+    }
+
+    private List<String> scannedPartitions(String sql) {
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+        return plan.stream()
+                .map(SCANNED_PARTITION::matcher)
+                .filter(Matcher::find)
+                .map(matcher -> matcher.group(1))
+                .distinct()
+                .toList();
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("""
+                SELECT child.relname
+                FROM pg_inherits i
+                JOIN pg_class parent ON parent.oid = i.inhparent
+                JOIN pg_class child ON child.oid = i.inhrelid
+                WHERE parent.relname = 'transactions' AND parent.relnamespace = current_schema()::regnamespace
+                """, String.class);
+    }
+
+    private YearMonth earliestPartitionMonth() {
+        return partitions().stream()
+                .filter(name -> name.matches("transactions_p\\d{4}_\\d{2}"))
+                .map(name -> YearMonth.parse(name.substring("transactions_p".length()), SUFFIX))
+                .min(YearMonth::compareTo)
+                .orElseThrow();
+    }
+
+    private long rowsIn(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "transactions_p" + month.format(SUFFIX);
+    }
+}